@@ -0,0 +1,130 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2020 dyorgio.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package dyorgio.runtime.macos.trayicon.fixer;
+
+import java.awt.TrayIcon;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.swing.SwingUtilities;
+
+/**
+ * Turns native clicks into ActionEvents following a {@link ClickPolicy}.
+ *
+ * @author dyorgio
+ */
+@SuppressWarnings("Convert2Lambda")
+final class ClickDispatcher {
+
+    private final TrayIcon icon;
+    private final AtomicLong suppressed = new AtomicLong();
+    private final AtomicLong dispatchedClicks = new AtomicLong();
+    private volatile ClickPolicy policy = ClickPolicy.NONE;
+    private long lastDispatchNanos;
+    private boolean dispatched;
+    private ScheduledFuture<?> pendingSingle;
+    private long pendingSingleNanos;
+
+    ClickDispatcher(TrayIcon icon) {
+        this.icon = icon;
+    }
+
+    void setPolicy(ClickPolicy policy) {
+        this.policy = policy;
+    }
+
+    ClickPolicy getPolicy() {
+        return policy;
+    }
+
+    long getSuppressedClicks() {
+        return suppressed.get();
+    }
+
+    /**
+     * Sequence of last dispatched ActionEvent (1 for first one).
+     */
+    long getDispatchedClicks() {
+        return dispatchedClicks.get();
+    }
+
+    /**
+     * Called on each native click.
+     */
+    synchronized void click() {
+        ClickPolicy current = policy;
+        long now = System.nanoTime();
+        if (pendingSingle != null && now - pendingSingleNanos <= current.getDoubleClickNanos()) {
+            if (pendingSingle.cancel(false)) {
+                pendingSingle = null;
+                dispatch(ClickPolicy.DOUBLE_CLICK_COMMAND, now);
+                return;
+            }
+        }
+        if (dispatched && now - lastDispatchNanos < current.getDebounceNanos()) {
+            suppressed.incrementAndGet();
+            return;
+        }
+        if (pendingSingle != null && !pendingSingle.isDone()) {
+            // waiting for double click, extra clicks change nothing
+            suppressed.incrementAndGet();
+            return;
+        }
+        if (current.getDoubleClickNanos() == 0) {
+            dispatch(icon.getActionCommand(), now);
+            return;
+        }
+        pendingSingleNanos = now;
+        pendingSingle = FixerThreads.scheduler().schedule(new Runnable() {
+            @Override
+            public void run() {
+                synchronized (ClickDispatcher.this) {
+                    pendingSingle = null;
+                    dispatch(icon.getActionCommand(), System.nanoTime());
+                }
+            }
+        }, current.getDoubleClickNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    private void dispatch(String command, long now) {
+        dispatched = true;
+        lastDispatchNanos = now;
+        dispatchedClicks.incrementAndGet();
+        final ActionListener[] listeners = icon.getActionListeners();
+        if (listeners.length == 0) {
+            return;
+        }
+        final ActionEvent event = new ActionEvent(icon, ActionEvent.ACTION_PERFORMED, command, System.currentTimeMillis(), 0);
+        SwingUtilities.invokeLater(new Runnable() {
+            @Override
+            public void run() {
+                for (ActionListener listener : listeners) {
+                    listener.actionPerformed(event);
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2020 dyorgio.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package dyorgio.runtime.macos.trayicon.fixer;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * How native clicks of a fixed TrayIcon (without menu) become ActionEvents.
+ *
+ * @author dyorgio
+ */
+public final class ClickPolicy {
+
+    /**
+     * Action command of double click events.
+     */
+    public static final String DOUBLE_CLICK_COMMAND = "doubleClick";
+
+    /**
+     * Every click is dispatched (default).
+     */
+    public static final ClickPolicy NONE = new ClickPolicy(0, 0, TimeUnit.MILLISECONDS);
+
+    private final long debounceNanos;
+    private final long doubleClickNanos;
+
+    /**
+     * @param debounce clicks closer than this to last dispatched one are
+     * suppressed (zero disables).
+     * @param doubleClick a second click inside this interval is dispatched as
+     * a single {@link #DOUBLE_CLICK_COMMAND} event, single clicks are delayed
+     * by this interval (zero disables).
+     */
+    public ClickPolicy(long debounce, long doubleClick, TimeUnit unit) {
+        if (debounce < 0 || doubleClick < 0) {
+            throw new IllegalArgumentException("Intervals cannot be negative");
+        }
+        this.debounceNanos = unit.toNanos(debounce);
+        this.doubleClickNanos = unit.toNanos(doubleClick);
+    }
+
+    public long getDebounceNanos() {
+        return debounceNanos;
+    }
+
+    public long getDoubleClickNanos() {
+        return doubleClickNanos;
+    }
+}
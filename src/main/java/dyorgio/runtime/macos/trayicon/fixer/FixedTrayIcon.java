@@ -0,0 +1,432 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2020 dyorgio.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package dyorgio.runtime.macos.trayicon.fixer;
+
+import com.sun.jna.NativeLong;
+import dyorgio.runtime.macos.trayicon.fixer.jna.appkit.AppKit;
+import dyorgio.runtime.macos.trayicon.fixer.jna.foundation.ActionCallback;
+import dyorgio.runtime.macos.trayicon.fixer.jna.foundation.CommandBuffer;
+import dyorgio.runtime.macos.trayicon.fixer.jna.foundation.FoundationUtil;
+import dyorgio.runtime.macos.trayicon.fixer.jna.foundation.ObjC;
+import dyorgio.runtime.macos.trayicon.fixer.jna.foundation.NSString;
+import dyorgio.runtime.macos.trayicon.fixer.menu.NativeMenu;
+import java.awt.Image;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Native state of a fixed TrayIcon, keeps last applied values to skip
+ * redundant native calls.<br>
+ * Main thread tasks take this instance lock, so it must never be held while
+ * waiting on main thread.
+ *
+ * @author dyorgio
+ */
+@SuppressWarnings("Convert2Lambda")
+final class FixedTrayIcon {
+
+    static final long DEFAULT_TITLE_UPDATE_INTERVAL_MILLIS = 250;
+
+    private static final AtomicLong SKIPPED_UPDATES = new AtomicLong();
+    private static final long setImageSel = ObjC.selector("setImage:");
+    private static final long setTitleSel = ObjC.selector("setTitle:");
+    private static final long setLengthSel = ObjC.selector("setLength:");
+    private static final long setImagePositionSel = ObjC.selector("setImagePosition:");
+    private static final long setVisibleSel = ObjC.selector("setVisible:");
+    private static final long setToolTipSel = ObjC.selector("setToolTip:");
+    private static final long setMenuSel = ObjC.selector("setMenu:");
+
+    final NativeLong statusItem;
+    // NSStatusBarButton or NSStatusItem on older OS versions
+    final NativeLong target;
+    private final long statusItemId;
+    private final long targetId;
+    final ClickDispatcher clicks;
+
+    // last applied native state
+    private FixMode mode;
+    private double length;
+    private long popupMenu;
+    private Image image;
+    private long imageHash;
+    private long nativeImage;
+    private String toolTip;
+    private boolean visible = true;
+    private ActionCallback action;
+    private NativeMenu menu;
+    private long titleUpdateIntervalNanos = TimeUnit.MILLISECONDS.toNanos(DEFAULT_TITLE_UPDATE_INTERVAL_MILLIS);
+    private String pendingTitle;
+    private String appliedTitle;
+    private long lastTitleUpdateNanos;
+    private boolean titleFlushScheduled;
+
+    FixedTrayIcon(NativeLong statusItem, NativeLong target, ClickDispatcher clicks, ActionCallback action, FixMode mode, double length, long popupMenu, Image image) {
+        this.statusItem = statusItem;
+        this.target = target;
+        this.statusItemId = statusItem.longValue();
+        this.targetId = target.longValue();
+        this.clicks = clicks;
+        this.action = action;
+        this.mode = mode;
+        this.length = length;
+        this.popupMenu = popupMenu;
+        this.image = image;
+    }
+
+    static ActionCallback newAction(final ClickDispatcher clicks) {
+        return new ActionCallback(new Runnable() {
+            @Override
+            public void run() {
+                clicks.click();
+            }
+        });
+    }
+
+    /**
+     * Releases action and menu, status item must be already removed.
+     */
+    void dispose() {
+        final NativeMenu oldMenu;
+        final ActionCallback oldAction;
+        synchronized (this) {
+            oldMenu = menu;
+            oldAction = action;
+            menu = null;
+            action = null;
+        }
+        if (oldMenu == null && oldAction == null) {
+            return;
+        }
+        FoundationUtil.runOnMainThread(new Runnable() {
+            @Override
+            public void run() {
+                if (oldMenu != null) {
+                    oldMenu.release();
+                }
+                if (oldAction != null) {
+                    oldAction.release();
+                }
+            }
+        }, false);
+    }
+
+    /**
+     * @return native updates skipped because value was already applied.
+     */
+    static long getSkippedUpdates() {
+        return SKIPPED_UPDATES.get();
+    }
+
+    private static void skipped(int updates) {
+        SKIPPED_UPDATES.addAndGet(updates);
+    }
+
+    /**
+     * Fix of an already fixed status item, sends only length and menu
+     * changes (view and image are kept).<br>
+     * Commands are built under lock but executed without it, main thread
+     * tasks take this lock too.
+     */
+    FixMode refix(double newLength, long newPopupMenu) throws InterruptedException, ExecutionException {
+        CommandBuffer commands = FoundationUtil.newCommandBuffer();
+        int skipped = 0;
+        FixMode newMode;
+        synchronized (this) {
+            if (newLength == length) {
+                skipped++;
+            } else if (appliedTitle != null) {
+                // variable while title is shown, applied when title is removed
+                length = newLength;
+                skipped++;
+            } else {
+                commands.send(statusItem, "setLength:", newLength);
+            }
+            newMode = mode;
+            if (newPopupMenu == popupMenu) {
+                skipped++;
+            } else if (newPopupMenu != 0) {
+                commands.send(statusItem, "setMenu:", commands.send(new NativeLong(newPopupMenu), "menu"));
+                newMode = FixMode.MENU;
+            } else {
+                commands.send(statusItem, "setMenu:", FoundationUtil.NULL);
+                // fixed with menu first, action was never installed
+                if (action == null) {
+                    action = newAction(clicks);
+                    action.installActionOnNSControl(commands, commands.value(target));
+                }
+                newMode = FixMode.ACTION;
+            }
+        }
+        if (commands.size() > 0) {
+            commands.execute();
+        }
+        skipped(skipped);
+        synchronized (this) {
+            length = newLength;
+            popupMenu = newPopupMenu;
+            mode = newMode;
+        }
+        return newMode;
+    }
+
+    /**
+     * @return true (counting a skipped update) if same image instance is
+     * shown and its pixels didn't change since (see
+     * {@link PreparedImage#contentHash(java.awt.Image)}).
+     */
+    boolean isImageApplied(Image newImage) {
+        synchronized (this) {
+            if (this.image != newImage || imageHash == 0) {
+                return false;
+            }
+        }
+        // hashed outside lock, main thread tasks take it
+        long hash = PreparedImage.contentHash(newImage);
+        synchronized (this) {
+            if (this.image == newImage && imageHash == hash) {
+                skipped(1);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return true (counting a skipped update) if native image is already
+     * shown.
+     */
+    synchronized boolean isNativeImageApplied(long newNativeImage) {
+        if (nativeImage == newNativeImage) {
+            skipped(1);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Sends native image to status item and records it as shown, must run on
+     * main thread (keeps record in main thread order).
+     */
+    void applyImage(PreparedImage newImage) {
+        long newNativeImage = newImage.getNativeImage().longValue();
+        ObjC.send(targetId, setImageSel, newNativeImage);
+        synchronized (this) {
+            image = newImage.getImage();
+            imageHash = newImage.contentHash;
+            // status item retains it, id cannot be reused while recorded
+            nativeImage = newNativeImage;
+        }
+    }
+
+    void setToolTip(final String newToolTip) throws InterruptedException, ExecutionException {
+        synchronized (this) {
+            if (equals(newToolTip, toolTip)) {
+                skipped(1);
+                return;
+            }
+        }
+        final NSString nsToolTip = newToolTip == null ? null : new NSString(newToolTip);
+        // state is recorded when applied, wait may return before (EDT fallback)
+        FoundationUtil.runOnMainThreadAndWait(new Runnable() {
+            @Override
+            public void run() {
+                ObjC.send(targetId, setToolTipSel, nsToolTip == null ? ObjC.NIL : nsToolTip.getId().longValue());
+                synchronized (FixedTrayIcon.this) {
+                    toolTip = newToolTip;
+                }
+            }
+        });
+    }
+
+    synchronized FixMode getMode() {
+        return mode;
+    }
+
+    /**
+     * Shows or hides status item (NSStatusItem.visible).
+     *
+     * @throws UnsupportedOperationException before macOS 10.12.
+     */
+    void setVisible(final boolean newVisible) throws InterruptedException, ExecutionException {
+        if (!MacOSTrayIconFixer.isStatusItemVisibilitySupported()) {
+            throw new UnsupportedOperationException("NSStatusItem visibility requires macOS 10.12+");
+        }
+        synchronized (this) {
+            if (visible == newVisible) {
+                skipped(1);
+                return;
+            }
+        }
+        FoundationUtil.runOnMainThreadAndWait(new Runnable() {
+            @Override
+            public void run() {
+                ObjC.send(statusItemId, setVisibleSel, newVisible);
+                synchronized (FixedTrayIcon.this) {
+                    visible = newVisible;
+                }
+            }
+        });
+    }
+
+    synchronized boolean isVisible() {
+        return visible;
+    }
+
+    /**
+     * Hides status item and clears state of last use (title, tooltip, menu
+     * and click policy), keeping image and action target.
+     */
+    void recycle() throws InterruptedException, ExecutionException {
+        setVisible(false);
+        setTitle(null);
+        setToolTip(null);
+        setMenu(null);
+        clicks.setPolicy(ClickPolicy.NONE);
+    }
+
+    synchronized String getToolTip() {
+        return toolTip;
+    }
+
+    synchronized void setTitleUpdateInterval(long interval, TimeUnit unit) {
+        if (interval < 0) {
+            throw new IllegalArgumentException("Interval cannot be negative");
+        }
+        titleUpdateIntervalNanos = unit.toNanos(interval);
+    }
+
+    /**
+     * Applies title at most once per update interval, intermediate values are
+     * coalesced and only last one is applied.
+     */
+    void setTitle(String title) {
+        if (title != null && title.isEmpty()) {
+            title = null;
+        }
+        long delay;
+        boolean schedule = false;
+        synchronized (this) {
+            pendingTitle = title;
+            if (titleFlushScheduled) {
+                return;
+            }
+            if (equals(title, appliedTitle)) {
+                skipped(1);
+                return;
+            }
+            delay = lastTitleUpdateNanos + titleUpdateIntervalNanos - System.nanoTime();
+            if (lastTitleUpdateNanos != 0 && delay > 0) {
+                titleFlushScheduled = schedule = true;
+            }
+        }
+        if (schedule) {
+            FixerThreads.scheduler().schedule(new Runnable() {
+                @Override
+                public void run() {
+                    flushTitle();
+                }
+            }, delay, TimeUnit.NANOSECONDS);
+        } else {
+            flushTitle();
+        }
+    }
+
+    synchronized String getTitle() {
+        return pendingTitle;
+    }
+
+    private void flushTitle() {
+        final String title;
+        final boolean wasEmpty;
+        final double currentLength;
+        synchronized (this) {
+            titleFlushScheduled = false;
+            if (equals(pendingTitle, appliedTitle)) {
+                // changed back to applied value before flush
+                skipped(1);
+                return;
+            }
+            title = pendingTitle;
+            wasEmpty = appliedTitle == null;
+            appliedTitle = title;
+            currentLength = length;
+            lastTitleUpdateNanos = System.nanoTime();
+        }
+        final NSString nsTitle = new NSString(title == null ? "" : title);
+        FoundationUtil.runOnMainThread(new Runnable() {
+            @Override
+            public void run() {
+                if (title != null && wasEmpty) {
+                    ObjC.send(statusItemId, setLengthSel, AppKit.NSVariableStatusItemLength);
+                    if (targetId != statusItemId) {
+                        ObjC.send(targetId, setImagePositionSel, AppKit.NSImageLeft);
+                    }
+                }
+                ObjC.send(targetId, setTitleSel, nsTitle.getId().longValue());
+                if (title == null && !wasEmpty) {
+                    ObjC.send(statusItemId, setLengthSel, currentLength);
+                }
+            }
+        }, false);
+    }
+
+    /**
+     * Attaches menu (or detaches with null) on status item, previous menu is
+     * released.
+     */
+    void setMenu(final NativeMenu newMenu) throws InterruptedException, ExecutionException {
+        synchronized (this) {
+            if (menu == newMenu) {
+                skipped(1);
+                return;
+            }
+        }
+        FoundationUtil.runOnMainThreadAndWait(new Runnable() {
+            @Override
+            public void run() {
+                NativeMenu oldMenu;
+                synchronized (FixedTrayIcon.this) {
+                    oldMenu = menu;
+                    menu = newMenu;
+                }
+                if (oldMenu == newMenu) {
+                    return;
+                }
+                ObjC.send(statusItemId, setMenuSel, newMenu == null ? ObjC.NIL : newMenu.getNSMenu().getId().longValue());
+                if (oldMenu != null) {
+                    oldMenu.release();
+                }
+            }
+        });
+    }
+
+    synchronized NativeMenu getMenu() {
+        return menu;
+    }
+
+    private static boolean equals(String a, String b) {
+        return a == null ? b == null : a.equals(b);
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2020 dyorgio.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package dyorgio.runtime.macos.trayicon.fixer;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Background daemon threads of async fixer operations: fixes (may block
+ * waiting main thread) and timers (never block) run on different threads.
+ *
+ * @author dyorgio
+ */
+final class FixerThreads {
+
+    private static final ThreadPoolExecutor FIXES;
+    private static final ScheduledExecutorService SCHEDULER;
+
+    static {
+        ThreadPoolExecutor fixes = new ThreadPoolExecutor(1, 1, 30, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), new DaemonThreadFactory("MacOSTrayIconFixer"));
+        fixes.allowCoreThreadTimeOut(true);
+        FIXES = fixes;
+        ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1, new DaemonThreadFactory("MacOSTrayIconFixer-timer"));
+        scheduler.setKeepAliveTime(30, TimeUnit.SECONDS);
+        scheduler.allowCoreThreadTimeOut(true);
+        SCHEDULER = scheduler;
+    }
+
+    private FixerThreads() {
+    }
+
+    /**
+     * @return executor of short non blocking timers (title flushes, click
+     * dispatch).
+     */
+    static ScheduledExecutorService scheduler() {
+        return SCHEDULER;
+    }
+
+    /**
+     * Submits a fix, fixes are serialized and may block waiting main thread.
+     */
+    static <T> Future<T> submit(Callable<T> callable) {
+        return FIXES.submit(callable);
+    }
+
+    static <T> Future<T> runInline(Callable<T> callable) {
+        FutureTask<T> future = new FutureTask<T>(callable);
+        future.run();
+        return future;
+    }
+
+    static <T> Future<T> completed(T value) {
+        FutureTask<T> future = new FutureTask<T>(new Runnable() {
+            @Override
+            public void run() {
+            }
+        }, value);
+        future.run();
+        return future;
+    }
+
+    /**
+     * Gets real cause of an execution exception to be rethrown by a callable.
+     */
+    static Exception unwrap(ExecutionException e) {
+        Throwable cause = e.getCause();
+        if (cause instanceof Exception) {
+            return (Exception) cause;
+        }
+        if (cause instanceof Error) {
+            throw (Error) cause;
+        }
+        return e;
+    }
+
+    private static final class DaemonThreadFactory implements ThreadFactory {
+
+        private final String name;
+
+        DaemonThreadFactory(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, name);
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
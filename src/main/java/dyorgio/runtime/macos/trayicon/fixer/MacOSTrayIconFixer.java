@@ -24,26 +24,28 @@
 package dyorgio.runtime.macos.trayicon.fixer;
 
 import com.sun.jna.NativeLong;
+import dyorgio.runtime.macos.trayicon.fixer.image.IconSet;
 import dyorgio.runtime.macos.trayicon.fixer.jna.appkit.AppKit;
 import dyorgio.runtime.macos.trayicon.fixer.jna.foundation.ActionCallback;
-import dyorgio.runtime.macos.trayicon.fixer.jna.foundation.Foundation;
+import dyorgio.runtime.macos.trayicon.fixer.jna.foundation.CommandBuffer;
 import dyorgio.runtime.macos.trayicon.fixer.jna.foundation.FoundationUtil;
 import dyorgio.runtime.macos.trayicon.fixer.jna.foundation.NSDictionary;
 import dyorgio.runtime.macos.trayicon.fixer.jna.foundation.NSString;
 import dyorgio.runtime.macos.trayicon.fixer.jna.foundation.NSUserDefaults;
+import dyorgio.runtime.macos.trayicon.fixer.jna.foundation.ObjC;
+import dyorgio.runtime.macos.trayicon.fixer.menu.NativeMenu;
 import java.awt.Image;
-import java.awt.MenuComponent;
 import java.awt.SystemTray;
 import java.awt.TrayIcon;
-import java.awt.event.ActionEvent;
-import java.awt.event.ActionListener;
-import java.lang.reflect.Field;
 import java.lang.reflect.Method;
 import java.util.Arrays;
 import java.util.WeakHashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import javax.swing.SwingUtilities;
 
 /**
  *
@@ -55,7 +57,12 @@ public final class MacOSTrayIconFixer {
     private static final String OS_VERSION = new NSString(NSDictionary.dictionaryWithContentsOfFile(new NSString("/System/Library/CoreServices/SystemVersion.plist"))//
             .objectForKey(new NSString("ProductVersion")).getId()).toString();
     
-    private static final WeakHashMap<TrayIcon, NativeLong> FIXED_TRAYICONS = new WeakHashMap();
+    private static final WeakHashMap<TrayIcon, FixedTrayIcon> FIXED_TRAYICONS = new WeakHashMap();
+    private static final long theItemSel = ObjC.selector("theItem");
+    private static final long viewSel = ObjC.selector("view");
+    private static final long classSel = ObjC.selector("class");
+    // called for every prepared (animation) frame
+    private static final long setTemplateSel = ObjC.selector("setTemplate:");
 
     MacOSTrayIconFixer() {
     }
@@ -64,22 +71,54 @@ public final class MacOSTrayIconFixer {
         return !isImageTemplateSupported() && isDarkTheme() ? whiteImage : blackImage;
     }
 
+    public static Image getInitialIcon(IconSet icons, int frame) {
+        return getInitialIcon(icons.getBlackImage(frame), icons.getWhiteImage(frame));
+    }
+
     public static void fix(TrayIcon icon, Image blackImage, Image whiteImage) {
         fix(icon, blackImage, whiteImage, true, AppKit.NSSquareStatusItemLength);
     }
 
-    @SuppressWarnings("UseSpecificCatch")
-    public static void fix(final TrayIcon icon, Image blackImage, Image whiteImage, boolean needsMenu, final double length) {
+    public static void fix(TrayIcon icon, IconSet icons, int frame) {
+        fix(icon, icons, frame, true, AppKit.NSSquareStatusItemLength);
+    }
+
+    public static void fix(TrayIcon icon, IconSet icons, int frame, boolean needsMenu, double length) {
+        fix(icon, icons.getBlackImage(frame), icons.getWhiteImage(frame), needsMenu, length);
+    }
+
+    public static void fix(TrayIcon icon, Image blackImage, Image whiteImage, boolean needsMenu, double length) {
+        try {
+            fixAsync(icon, blackImage, whiteImage, needsMenu, length).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            LOGGER.log(Level.WARNING, "Unable to fix TrayIcon", e.getCause());
+        }
+    }
+
+    public static Future<FixMode> fixAsync(TrayIcon icon, Image blackImage, Image whiteImage) {
+        return fixAsync(icon, blackImage, whiteImage, true, AppKit.NSSquareStatusItemLength);
+    }
+
+    /**
+     * Same as {@link #fix(java.awt.TrayIcon, java.awt.Image, java.awt.Image, boolean, double)}
+     * but without blocking caller, peer lookups and native changes are done
+     * in background.<br>
+     * Invalid arguments or state are thrown immediately, any other failure is
+     * reported as cause of future {@link ExecutionException}.
+     */
+    public static Future<FixMode> fixAsync(final TrayIcon icon, Image blackImage, Image whiteImage, final boolean needsMenu, final double length) {
         Image initial = getInitialIcon(blackImage, whiteImage);
-            
-        if (!isImageTemplateSupported()){
+
+        if (!isImageTemplateSupported()) {
             icon.setImage(initial);
-            return;
+            return FixerThreads.completed(FixMode.IMAGE_ONLY);
         }
-        
+
         if (isImageTemplateSupportedJdk()) {
             LOGGER.log(Level.INFO, "JDK has support for template icons, skipping fix");
-            return;
+            return FixerThreads.completed(FixMode.JDK_TEMPLATE);
         }
         // Check length
         if (length == 0) {
@@ -94,76 +133,107 @@ public final class MacOSTrayIconFixer {
             throw new IllegalStateException("TrayIcon needs to be added on SystemTray first");
         }
 
-        try {
-            Field ptrField = Class.forName("sun.lwawt.macosx.CFRetainedResource").getDeclaredField("ptr");
-            ptrField.setAccessible(true);
-
-            Field field = TrayIcon.class.getDeclaredField("peer");
-            field.setAccessible(true);
-            long cTrayIconAddress = ptrField.getLong(field.get(icon));
-
-            long cPopupMenuAddressTmp = 0;
-            if (needsMenu || icon.getPopupMenu() != null) {
-                field = MenuComponent.class.getDeclaredField("peer");
-                field.setAccessible(true);
-                cPopupMenuAddressTmp = ptrField.getLong(field.get(icon.getPopupMenu()));
-            }
-            final long cPopupMenuAddress = cPopupMenuAddressTmp;
+        Callable<FixMode> fix = new Callable<FixMode>() {
+            @Override
+            public FixMode call() throws Exception {
+                Object trayIconPeer = PeerAccess.getPeer(icon);
+                if (trayIconPeer == null) {
+                    throw new IllegalStateException("TrayIcon has no peer, was it removed from SystemTray?");
+                }
+                long cTrayIconAddress = PeerAccess.getPtr(trayIconPeer);
 
-            final NativeLong statusItem = FoundationUtil.invoke(new NativeLong(cTrayIconAddress), "theItem");
-            NativeLong awtView = FoundationUtil.invoke(statusItem, "view");
-            final NativeLong image = Foundation.INSTANCE.object_getIvar(awtView, Foundation.INSTANCE.class_getInstanceVariable(FoundationUtil.invoke(awtView, "class"), "image"));
-            FoundationUtil.invoke(image, "setTemplate:", true);
-            FoundationUtil.runOnMainThreadAndWait(new Runnable() {
-                @Override
-                public void run() {
-                    FoundationUtil.invoke(statusItem, "setView:", FoundationUtil.NULL);
-                    NativeLong target;
-                    if (isStatusItemButtonSupported()) {
-                        target = FoundationUtil.invoke(statusItem, "button");
-                    } else {
-                        target = statusItem;
-                    }
-                    FoundationUtil.invoke(target, "setImage:", image);
-
-                    FoundationUtil.invoke(statusItem, "setLength:", length);
-
-                    if (cPopupMenuAddress != 0) {
-                        FoundationUtil.invoke(statusItem, "setMenu:", FoundationUtil.invoke(new NativeLong(cPopupMenuAddress), "menu"));
-                    } else {
-                        new ActionCallback(new Runnable() {
-                            @Override
-                            public void run() {
-                                final ActionListener[] listeners = icon.getActionListeners();
-                                final int now = (int) System.currentTimeMillis();
-                                for (int i = 0; i < listeners.length; i++) {
-                                    final int iF = i;
-                                    SwingUtilities.invokeLater(new Runnable() {
-                                        @Override
-                                        public void run() {
-                                            listeners[iF].actionPerformed(new ActionEvent(icon, now + iF, null));
-                                        }
-                                    });
-                                }
-                            }
-                        }).installActionOnNSControl(target);
+                long cPopupMenuAddressTmp = 0;
+                if (needsMenu || icon.getPopupMenu() != null) {
+                    cPopupMenuAddressTmp = PeerAccess.getPtr(PeerAccess.getPeer(icon.getPopupMenu()));
+                }
+                final long cPopupMenuAddress = cPopupMenuAddressTmp;
+
+                final NativeLong statusItem = new NativeLong(ObjC.send(cTrayIconAddress, theItemSel));
+                if (FoundationUtil.isNull(statusItem)) {
+                    throw new IllegalStateException("TrayIcon peer has no status item");
+                }
+                FixedTrayIcon fixed = findFixed(icon);
+                if (fixed != null && fixed.statusItem.equals(statusItem)) {
+                    // already fixed, apply only what changed
+                    return fixed.refix(length, cPopupMenuAddress);
+                }
+                long awtView = ObjC.send(statusItem.longValue(), viewSel);
+                final NativeLong image = new NativeLong(ObjC.runtime().getIvar(awtView, ObjC.runtime().getInstanceVariable(ObjC.send(awtView, classSel), "image")));
+                ObjC.send(image.longValue(), setTemplateSel, true);
+                final ClickDispatcher clicks = new ClickDispatcher(icon);
+                // all native changes are applied on a single main thread call
+                CommandBuffer commands = FoundationUtil.newCommandBuffer();
+                commands.send(statusItem, "setView:", FoundationUtil.NULL);
+                CommandBuffer.Slot target;
+                if (isStatusItemButtonSupported()) {
+                    target = commands.send(statusItem, "button");
+                } else {
+                    target = commands.value(statusItem);
+                }
+                commands.send(target, "setImage:", image);
+
+                commands.send(statusItem, "setLength:", length);
+
+                FixMode mode;
+                ActionCallback action = null;
+                if (cPopupMenuAddress != 0) {
+                    commands.send(statusItem, "setMenu:", commands.send(new NativeLong(cPopupMenuAddress), "menu"));
+                    mode = FixMode.MENU;
+                } else {
+                    action = FixedTrayIcon.newAction(clicks);
+                    action.installActionOnNSControl(commands, target);
+                    mode = FixMode.ACTION;
+                }
+                try {
+                    NativeLong targetId = commands.execute().get(target);
+                    synchronized (FIXED_TRAYICONS) {
+                        FIXED_TRAYICONS.put(icon, new FixedTrayIcon(statusItem, targetId, clicks, action, mode, length, cPopupMenuAddress, icon.getImage()));
                     }
-                    FIXED_TRAYICONS.put(icon, target);
+                    return mode;
+                } catch (ExecutionException e) {
+                    throw FixerThreads.unwrap(e);
                 }
-            });
-        } catch (Throwable ignore) {
-            // ignore all
+            }
+        };
+        if (FoundationUtil.isMainThread()) {
+            // fix waits on main thread, from main thread it must run inline
+            return FixerThreads.runInline(fix);
         }
+        return FixerThreads.submit(fix);
     }
 
+    /**
+     * Converts and shows image, skipped when the same image instance with the
+     * same pixels is already shown. Pixels are compared only for
+     * BufferedImages (content hash), other image types are always converted.
+     */
     public static void updateImage(final TrayIcon icon, Image blackImage, Image whiteImage) {
-        Image initial = getInitialIcon(blackImage, whiteImage);
-            
-        if (!isImageTemplateSupported()){
-            icon.setImage(initial);
+        FixedTrayIcon fixed = findFixed(icon);
+        // skip native conversion when image is already shown
+        if (fixed != null && fixed.isImageApplied(getInitialIcon(blackImage, whiteImage))) {
+            return;
+        }
+        PreparedImage image;
+        try {
+            image = prepareImage(blackImage, whiteImage);
+        } catch (IllegalStateException ignore) {
+            // ignore native conversion errors
+            return;
+        }
+        updateImage(icon, image);
+    }
+
+    /**
+     * Shows an already converted image, skipped when its native image is
+     * already shown. A PreparedImage is a snapshot, to show changed pixels
+     * prepare it again.
+     */
+    public static void updateImage(final TrayIcon icon, final PreparedImage image) {
+        if (!isImageTemplateSupported()) {
+            icon.setImage(image.getImage());
             return;
         }
-        
+
         if (isImageTemplateSupportedJdk()) {
             LOGGER.log(Level.INFO, "JDK has support for template icons, skipping fix");
             return;
@@ -172,31 +242,21 @@ public final class MacOSTrayIconFixer {
         if (!Arrays.asList(SystemTray.getSystemTray().getTrayIcons()).contains(icon)) {
             throw new IllegalStateException("TrayIcon needs to be added on SystemTray first");
         }
-        
-        final NativeLong target = FIXED_TRAYICONS.get(icon);
-        // Check if icon was 'fixed'
-        if (target == null) {
-            throw new IllegalStateException("TrayIcon needs to be fixed first");
+
+        // Check if image was converted
+        if (image.getNativeImage() == null) {
+            throw new IllegalStateException("PreparedImage has no native template image");
+        }
+        final FixedTrayIcon target = getFixed(icon);
+        if (target.isNativeImageApplied(image.getNativeImage().longValue())) {
+            return;
         }
-        
-        try {
-            Field ptrField = Class.forName("sun.lwawt.macosx.CFRetainedResource").getDeclaredField("ptr");
-            ptrField.setAccessible(true);
 
-            Object imageObj = Class.forName("sun.lwawt.macosx.CImage$Creator").getDeclaredMethod("createFromImage", Image.class)
-                    .invoke(Class.forName("sun.lwawt.macosx.CImage").getDeclaredMethod("getCreator").invoke(null), initial);
-                        
-            Method resizeMethod = Class.forName("sun.lwawt.macosx.CImage").getDeclaredMethod("resize", double.class, double.class);
-            resizeMethod.setAccessible(true);
-            resizeMethod.invoke(imageObj, 22d, 22d);
-            
-            final NativeLong image = new NativeLong(ptrField.getLong(imageObj));
-            
+        try {
             FoundationUtil.runOnMainThreadAndWait(new Runnable() {
                 @Override
                 public void run() {
-                    FoundationUtil.invoke(image, "setTemplate:", true);
-                    FoundationUtil.invoke(target, "setImage:", image);
+                    target.applyImage(image);
                 }
             });
         } catch (Throwable ignore) {
@@ -204,6 +264,185 @@ public final class MacOSTrayIconFixer {
         }
     }
 
+    /**
+     * Chooses image version and converts it into a native template image,
+     * this can be called from any thread before
+     * {@link #updateImage(java.awt.TrayIcon, dyorgio.runtime.macos.trayicon.fixer.PreparedImage)}.
+     *
+     * @throws IllegalStateException if native image cannot be created.
+     */
+    public static PreparedImage prepareImage(Image blackImage, Image whiteImage) {
+        Image initial = getInitialIcon(blackImage, whiteImage);
+
+        if (!isImageTemplateSupported() || isImageTemplateSupportedJdk()) {
+            return new PreparedImage(initial, null, null, 0);
+        }
+
+        try {
+            // hashed before conversion, later changes make it stale
+            long contentHash = PreparedImage.contentHash(initial);
+            Object imageObj = Class.forName("sun.lwawt.macosx.CImage$Creator").getDeclaredMethod("createFromImage", Image.class)
+                    .invoke(Class.forName("sun.lwawt.macosx.CImage").getDeclaredMethod("getCreator").invoke(null), initial);
+
+            Method resizeMethod = Class.forName("sun.lwawt.macosx.CImage").getDeclaredMethod("resize", double.class, double.class);
+            resizeMethod.setAccessible(true);
+            resizeMethod.invoke(imageObj, 22d, 22d);
+
+            NativeLong image = new NativeLong(PeerAccess.getPtr(imageObj));
+            ObjC.send(image.longValue(), setTemplateSel, true);
+            return new PreparedImage(initial, imageObj, image, contentHash);
+        } catch (Throwable e) {
+            throw new IllegalStateException("Unable to create native template image", e);
+        }
+    }
+
+    public static void updateImage(TrayIcon icon, IconSet icons, int frame) {
+        updateImage(icon, icons.getBlackImage(frame), icons.getWhiteImage(frame));
+    }
+
+    /**
+     * Shows a title next to status item image, null or empty to remove it.
+     * <br>
+     * Native title is updated at most once per title update interval (250ms
+     * by default), identical values are skipped and intermediate values are
+     * coalesced. Status item length becomes
+     * {@link AppKit#NSVariableStatusItemLength} while a title is shown.
+     */
+    public static void setTitle(TrayIcon icon, String title) {
+        if (!isImageTemplateSupported() || isImageTemplateSupportedJdk()) {
+            return;
+        }
+        getFixed(icon).setTitle(title);
+    }
+
+    public static String getTitle(TrayIcon icon) {
+        return getFixed(icon).getTitle();
+    }
+
+    public static void setTitleUpdateInterval(TrayIcon icon, long interval, TimeUnit unit) {
+        getFixed(icon).setTitleUpdateInterval(interval, unit);
+    }
+
+    /**
+     * Attaches a native menu ({@link dyorgio.runtime.macos.trayicon.fixer.menu.LazyMenu}
+     * or {@link dyorgio.runtime.macos.trayicon.fixer.menu.ModelMenu}) on a
+     * fixed TrayIcon (usually fixed with needsMenu = false), replacing its
+     * PopupMenu or action. Null restores action behavior.
+     */
+    public static void setMenu(TrayIcon icon, NativeMenu menu) {
+        if (!isImageTemplateSupported() || isImageTemplateSupportedJdk()) {
+            return;
+        }
+        try {
+            getFixed(icon).setMenu(menu);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            LOGGER.log(Level.WARNING, "Unable to set TrayIcon menu", e.getCause());
+        }
+    }
+
+    /**
+     * Changes how clicks of a TrayIcon fixed without menu are dispatched to
+     * its ActionListeners, see {@link ClickPolicy}.
+     */
+    public static void setClickPolicy(TrayIcon icon, ClickPolicy policy) {
+        if (policy == null) {
+            throw new IllegalArgumentException("ClickPolicy cannot be null");
+        }
+        if (!isImageTemplateSupported() || isImageTemplateSupportedJdk()) {
+            return;
+        }
+        getFixed(icon).clicks.setPolicy(policy);
+    }
+
+    /**
+     * @return clicks suppressed by {@link ClickPolicy} since TrayIcon was
+     * fixed.
+     */
+    public static long getSuppressedClicks(TrayIcon icon) {
+        return getFixed(icon).clicks.getSuppressedClicks();
+    }
+
+    /**
+     * @return clicks dispatched as ActionEvents since TrayIcon was fixed,
+     * including ones without listeners.
+     */
+    public static long getDispatchedClicks(TrayIcon icon) {
+        return getFixed(icon).clicks.getDispatchedClicks();
+    }
+
+    /**
+     * Sets tooltip directly on status item, skipped if it is already shown.
+     */
+    public static void setToolTip(TrayIcon icon, String toolTip) {
+        if (!isImageTemplateSupported() || isImageTemplateSupportedJdk()) {
+            icon.setToolTip(toolTip);
+            return;
+        }
+        try {
+            getFixed(icon).setToolTip(toolTip);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            LOGGER.log(Level.WARNING, "Unable to set TrayIcon tooltip", e.getCause());
+        }
+    }
+
+    public static String getToolTip(TrayIcon icon) {
+        if (!isImageTemplateSupported() || isImageTemplateSupportedJdk()) {
+            return icon.getToolTip();
+        }
+        return getFixed(icon).getToolTip();
+    }
+
+    /**
+     * @return native updates (image, length, menu, title and tooltip) skipped
+     * because the same value was already applied.
+     */
+    public static long getSkippedUpdates() {
+        return FixedTrayIcon.getSkippedUpdates();
+    }
+
+    /**
+     * @return true if icon has a fixed native status item.
+     */
+    public static boolean isFixed(TrayIcon icon) {
+        return findFixed(icon) != null;
+    }
+
+    /**
+     * @return native state or null if icon was not fixed.
+     */
+    static FixedTrayIcon findFixed(TrayIcon icon) {
+        synchronized (FIXED_TRAYICONS) {
+            return FIXED_TRAYICONS.get(icon);
+        }
+    }
+
+    /**
+     * Drops native state of an icon removed from SystemTray, releasing its
+     * action and menu.
+     */
+    static void forget(TrayIcon icon) {
+        FixedTrayIcon fixed;
+        synchronized (FIXED_TRAYICONS) {
+            fixed = FIXED_TRAYICONS.remove(icon);
+        }
+        if (fixed != null) {
+            fixed.dispose();
+        }
+    }
+
+    static FixedTrayIcon getFixed(TrayIcon icon) {
+        FixedTrayIcon fixed = findFixed(icon);
+        // Check if icon was 'fixed'
+        if (fixed == null) {
+            throw new IllegalStateException("TrayIcon needs to be fixed first");
+        }
+        return fixed;
+    }
+
     public static boolean isImageTemplateSupported() {
         return compareOsVersionTo("10.5") >= 0;
     }
@@ -212,6 +451,14 @@ public final class MacOSTrayIconFixer {
         return compareOsVersionTo("10.10") >= 0;
     }
 
+    /**
+     * NSStatusItem.visible (used by {@link StatusItemPool}) exists since
+     * macOS 10.12.
+     */
+    public static boolean isStatusItemVisibilitySupported() {
+        return compareOsVersionTo("10.12") >= 0;
+    }
+
     /**
      * JDK-8252015 added native support for template images
      */
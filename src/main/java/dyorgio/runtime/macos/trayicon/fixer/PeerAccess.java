@@ -0,0 +1,85 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2020 dyorgio.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package dyorgio.runtime.macos.trayicon.fixer;
+
+import java.awt.MenuComponent;
+import java.awt.TrayIcon;
+import java.lang.reflect.Field;
+
+/**
+ * Reflective access to AWT peers and their native pointers, fields are
+ * resolved once (each one independently, a missing one fails only its
+ * getter).<br>
+ * Java 9+ version (META-INF/versions/9) uses constant MethodHandles.
+ *
+ * @author dyorgio
+ */
+final class PeerAccess {
+
+    private static Exception initError;
+    private static final Field ptrField = field("sun.lwawt.macosx.CFRetainedResource", "ptr");
+    private static final Field trayIconPeerField = field("java.awt.TrayIcon", "peer");
+    private static final Field menuComponentPeerField = field("java.awt.MenuComponent", "peer");
+
+    private PeerAccess() {
+    }
+
+    private static Field field(String className, String fieldName) {
+        try {
+            Field field = Class.forName(className).getDeclaredField(fieldName);
+            field.setAccessible(true);
+            return field;
+        } catch (Exception e) {
+            if (initError == null) {
+                initError = e;
+            }
+            return null;
+        }
+    }
+
+    private static Field check(Field field) throws Exception {
+        if (field == null) {
+            throw initError;
+        }
+        return field;
+    }
+
+    /**
+     * @return native pointer of a sun.lwawt.macosx.CFRetainedResource.
+     */
+    static long getPtr(Object resource) throws Exception {
+        return check(ptrField).getLong(resource);
+    }
+
+    /**
+     * @return peer or null if TrayIcon is not on SystemTray.
+     */
+    static Object getPeer(TrayIcon icon) throws Exception {
+        return check(trayIconPeerField).get(icon);
+    }
+
+    static Object getPeer(MenuComponent menu) throws Exception {
+        return check(menuComponentPeerField).get(menu);
+    }
+}
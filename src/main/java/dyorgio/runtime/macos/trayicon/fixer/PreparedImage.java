@@ -0,0 +1,85 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2020 dyorgio.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package dyorgio.runtime.macos.trayicon.fixer;
+
+import com.sun.jna.NativeLong;
+import java.awt.Image;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+
+/**
+ * Tray image already chosen by theme and converted into a native template
+ * image, created by {@link MacOSTrayIconFixer#prepareImage(java.awt.Image, java.awt.Image)}.
+ *
+ * @author dyorgio
+ */
+public final class PreparedImage {
+
+    private final Image image;
+    // keeps native image alive while this instance is reachable
+    private final Object cImage;
+    private final NativeLong nativeImage;
+    // content of image when it was converted
+    final long contentHash;
+
+    PreparedImage(Image image, Object cImage, NativeLong nativeImage, long contentHash) {
+        this.image = image;
+        this.cImage = cImage;
+        this.nativeImage = nativeImage;
+        this.contentHash = contentHash;
+    }
+
+    public Image getImage() {
+        return image;
+    }
+
+    /**
+     * @return native NSImage or null if template images are not used.
+     */
+    public NativeLong getNativeImage() {
+        return nativeImage;
+    }
+
+    /**
+     * Hash of pixels (without copying or un-accelerating them), only
+     * BufferedImages can be hashed.
+     *
+     * @return content hash or 0 if unknown.
+     */
+    static long contentHash(Image image) {
+        if (!(image instanceof BufferedImage)) {
+            return 0;
+        }
+        BufferedImage buffered = (BufferedImage) image;
+        DataBuffer data = buffered.getRaster().getDataBuffer();
+        long hash = 31L * (31L * buffered.getType() + buffered.getWidth()) + buffered.getHeight();
+        for (int bank = 0; bank < data.getNumBanks(); bank++) {
+            for (int i = 0; i < data.getSize(); i++) {
+                hash = 31L * hash + data.getElem(bank, i);
+            }
+        }
+        // 0 is reserved to unknown
+        return hash == 0 ? 1 : hash;
+    }
+}
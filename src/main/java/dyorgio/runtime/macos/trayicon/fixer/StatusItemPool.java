@@ -0,0 +1,247 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2020 dyorgio.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package dyorgio.runtime.macos.trayicon.fixer;
+
+import dyorgio.runtime.macos.trayicon.fixer.jna.appkit.AppKit;
+import dyorgio.runtime.macos.trayicon.fixer.jna.foundation.LatencyHistogram;
+import java.awt.AWTException;
+import java.awt.Image;
+import java.awt.SystemTray;
+import java.awt.TrayIcon;
+import java.awt.event.ActionListener;
+import java.awt.event.MouseListener;
+import java.awt.event.MouseMotionListener;
+import java.util.ArrayDeque;
+import java.util.concurrent.ExecutionException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Pool of fixed status items for transient TrayIcons, hidden icons are kept
+ * (NSStatusItem.visible = NO) and reused by next show instead of creating a
+ * new AWT peer and fixing it again.<br>
+ * Pooled TrayIcons stay on SystemTray while hidden. Icons are fixed without
+ * AWT PopupMenu, use
+ * {@link MacOSTrayIconFixer#setMenu(java.awt.TrayIcon, dyorgio.runtime.macos.trayicon.fixer.menu.NativeMenu)}
+ * for menus.
+ *
+ * @author dyorgio
+ */
+public final class StatusItemPool {
+
+    private static final Logger LOGGER = Logger.getLogger(StatusItemPool.class.getName());
+
+    private final double length;
+    private final ArrayDeque<TrayIcon> idle = new ArrayDeque<TrayIcon>();
+    private final LatencyHistogram poolHitLatency = new LatencyHistogram();
+    private final LatencyHistogram coldFixLatency = new LatencyHistogram();
+    private int maxSize;
+
+    public StatusItemPool(int maxSize) {
+        this(maxSize, AppKit.NSSquareStatusItemLength);
+    }
+
+    /**
+     * @param maxSize max hidden status items kept.
+     * @param length status item length of created icons.
+     */
+    public StatusItemPool(int maxSize, double length) {
+        if (maxSize < 0) {
+            throw new IllegalArgumentException("Pool size cannot be negative");
+        }
+        if (length == 0) {
+            throw new IllegalArgumentException("Status item length cannot be zero");
+        }
+        this.maxSize = maxSize;
+        this.length = length;
+    }
+
+    /**
+     * Shows a fixed TrayIcon with image, reusing a hidden one if available.
+     *
+     * @throws AWTException if a new TrayIcon cannot be added on SystemTray.
+     */
+    public TrayIcon show(Image blackImage, Image whiteImage) throws AWTException {
+        long start = System.nanoTime();
+        TrayIcon icon;
+        synchronized (this) {
+            icon = idle.pollLast();
+        }
+        if (icon != null) {
+            try {
+                MacOSTrayIconFixer.updateImage(icon, blackImage, whiteImage);
+                MacOSTrayIconFixer.getFixed(icon).setVisible(true);
+                poolHitLatency.record(System.nanoTime() - start);
+                return icon;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                discard(icon);
+                throw new AWTException("Interrupted while showing pooled TrayIcon");
+            } catch (ExecutionException e) {
+                LOGGER.log(Level.WARNING, "Unable to show pooled TrayIcon, creating a new one", e.getCause());
+                discard(icon);
+                start = System.nanoTime();
+            }
+        }
+
+        icon = new TrayIcon(MacOSTrayIconFixer.getInitialIcon(blackImage, whiteImage));
+        SystemTray.getSystemTray().add(icon);
+        if (!MacOSTrayIconFixer.isImageTemplateSupported() || MacOSTrayIconFixer.isImageTemplateSupportedJdk()) {
+            // nothing to fix (and nothing to pool)
+            MacOSTrayIconFixer.fix(icon, blackImage, whiteImage, false, length);
+            return icon;
+        }
+        try {
+            MacOSTrayIconFixer.fixAsync(icon, blackImage, whiteImage, false, length).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            LOGGER.log(Level.WARNING, "Unable to fix TrayIcon", e.getCause());
+        }
+        if (!MacOSTrayIconFixer.isFixed(icon)) {
+            discard(icon);
+            throw new AWTException("Unable to fix TrayIcon");
+        }
+        coldFixLatency.record(System.nanoTime() - start);
+        return icon;
+    }
+
+    /**
+     * Hides icon keeping it for next {@link #show(java.awt.Image, java.awt.Image)},
+     * or removes it from SystemTray if pool is full, icon has no native
+     * status item (not fixed, fixed with menu or template images handled by
+     * JDK) or status items cannot be hidden (before macOS 10.12).<br>
+     * Listeners, title, tooltip, menu and click policy are cleared.
+     */
+    public void hide(TrayIcon icon) {
+        FixedTrayIcon fixed = MacOSTrayIconFixer.findFixed(icon);
+        if (fixed == null || fixed.getMode() != FixMode.ACTION || !MacOSTrayIconFixer.isStatusItemVisibilitySupported()) {
+            discard(icon);
+            return;
+        }
+        synchronized (this) {
+            if (idle.contains(icon)) {
+                return;
+            }
+        }
+        try {
+            fixed.recycle();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            discard(icon);
+            return;
+        } catch (ExecutionException e) {
+            LOGGER.log(Level.WARNING, "Unable to recycle TrayIcon", e.getCause());
+            discard(icon);
+            return;
+        }
+        clearListeners(icon);
+        boolean pooled = false;
+        synchronized (this) {
+            if (idle.size() < maxSize) {
+                idle.addLast(icon);
+                pooled = true;
+            }
+        }
+        if (!pooled) {
+            discard(icon);
+        }
+    }
+
+    private static void clearListeners(TrayIcon icon) {
+        for (ActionListener listener : icon.getActionListeners()) {
+            icon.removeActionListener(listener);
+        }
+        for (MouseListener listener : icon.getMouseListeners()) {
+            icon.removeMouseListener(listener);
+        }
+        for (MouseMotionListener listener : icon.getMouseMotionListeners()) {
+            icon.removeMouseMotionListener(listener);
+        }
+    }
+
+    private static void discard(TrayIcon icon) {
+        SystemTray.getSystemTray().remove(icon);
+        MacOSTrayIconFixer.forget(icon);
+    }
+
+    /**
+     * Changes max hidden status items, extra ones are removed from
+     * SystemTray.
+     */
+    public void setMaxSize(int maxSize) {
+        if (maxSize < 0) {
+            throw new IllegalArgumentException("Pool size cannot be negative");
+        }
+        ArrayDeque<TrayIcon> removed = new ArrayDeque<TrayIcon>();
+        synchronized (this) {
+            this.maxSize = maxSize;
+            while (idle.size() > maxSize) {
+                removed.add(idle.pollFirst());
+            }
+        }
+        for (TrayIcon icon : removed) {
+            discard(icon);
+        }
+    }
+
+    public synchronized int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * @return hidden status items ready for reuse.
+     */
+    public synchronized int getIdleCount() {
+        return idle.size();
+    }
+
+    /**
+     * Removes all hidden status items from SystemTray.
+     */
+    public void clear() {
+        ArrayDeque<TrayIcon> removed;
+        synchronized (this) {
+            removed = new ArrayDeque<TrayIcon>(idle);
+            idle.clear();
+        }
+        for (TrayIcon icon : removed) {
+            discard(icon);
+        }
+    }
+
+    /**
+     * @return latency of shows served by a hidden status item.
+     */
+    public LatencyHistogram getPoolHitLatency() {
+        return poolHitLatency;
+    }
+
+    /**
+     * @return latency of shows that created and fixed a new TrayIcon.
+     */
+    public LatencyHistogram getColdFixLatency() {
+        return coldFixLatency;
+    }
+}
@@ -0,0 +1,177 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2020 dyorgio.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package dyorgio.runtime.macos.trayicon.fixer.image;
+
+import java.awt.color.ColorSpace;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferInt;
+import java.awt.image.DirectColorModel;
+import java.awt.image.Raster;
+import java.awt.image.WritableRaster;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Precompiled icon bundle (see {@link IconBundleWriter}) loaded through memory
+ * mapping.<br>
+ * Pixels are copied without any decoding into standard
+ * {@link BufferedImage#TYPE_INT_ARGB_PRE} images, the format CImage converts
+ * to.
+ *
+ * <pre>
+ * int   magic ('MTIB')
+ * int   version
+ * int   entry count
+ * entry count * {
+ *   int frame, int variant (0 = black, 1 = white), int scale,
+ *   int width, int height, int pixels offset
+ * }
+ * premultiplied ARGB pixels, one int per pixel
+ * </pre>
+ *
+ * @author dyorgio
+ */
+public final class IconBundle implements IconSet {
+
+    static final int MAGIC = 0x4D544942;
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 12;
+    static final int ENTRY_SIZE = 24;
+    static final int BLACK = 0;
+    static final int WHITE = 1;
+
+    private static final DirectColorModel PREMULTIPLIED_ARGB = new DirectColorModel(ColorSpace.getInstance(ColorSpace.CS_sRGB), //
+            32, 0x00ff0000, 0x0000ff00, 0x000000ff, 0xff000000, true, DataBuffer.TYPE_INT);
+
+    private final ByteBuffer buffer;
+    private final int entryCount;
+    private final int frameCount;
+    private final BufferedImage[] images;
+
+    public IconBundle(ByteBuffer buffer) throws IOException {
+        this.buffer = buffer.duplicate();
+        if (this.buffer.remaining() < HEADER_SIZE || this.buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not an icon bundle");
+        }
+        if (this.buffer.getInt(4) != VERSION) {
+            throw new IOException("Unsupported icon bundle version: " + this.buffer.getInt(4));
+        }
+        this.entryCount = this.buffer.getInt(8);
+        if (entryCount < 0 || HEADER_SIZE + (long) entryCount * ENTRY_SIZE > this.buffer.limit()) {
+            throw new IOException("Corrupted icon bundle header");
+        }
+        int frames = 0;
+        for (int i = 0; i < entryCount; i++) {
+            int entry = HEADER_SIZE + i * ENTRY_SIZE;
+            long end = this.buffer.getInt(entry + 20) + 4L * this.buffer.getInt(entry + 12) * this.buffer.getInt(entry + 16);
+            if (end > this.buffer.limit()) {
+                throw new IOException("Corrupted icon bundle entry: " + i);
+            }
+            frames = Math.max(frames, this.buffer.getInt(entry) + 1);
+        }
+        this.frameCount = frames;
+        this.images = new BufferedImage[entryCount];
+    }
+
+    public static IconBundle open(File file) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = raf.getChannel();
+            // mapping stays valid after channel is closed
+            return new IconBundle(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        } finally {
+            raf.close();
+        }
+    }
+
+    @Override
+    public int getFrameCount() {
+        return frameCount;
+    }
+
+    @Override
+    public BufferedImage getBlackImage(int frame) {
+        return getImage(frame, false, 0);
+    }
+
+    @Override
+    public BufferedImage getWhiteImage(int frame) {
+        return getImage(frame, true, 0);
+    }
+
+    /**
+     * @param scale requested scale or 0 to largest available.
+     */
+    public BufferedImage getImage(int frame, boolean white, int scale) {
+        int variant = white ? WHITE : BLACK;
+        int found = -1;
+        int foundScale = 0;
+        for (int i = 0; i < entryCount; i++) {
+            int entry = HEADER_SIZE + i * ENTRY_SIZE;
+            if (buffer.getInt(entry) == frame && buffer.getInt(entry + 4) == variant) {
+                int entryScale = buffer.getInt(entry + 8);
+                if (scale == 0 ? entryScale > foundScale : entryScale == scale) {
+                    found = i;
+                    foundScale = entryScale;
+                }
+            }
+        }
+        if (found == -1) {
+            throw new IllegalArgumentException("No image for frame " + frame + (white ? " (white)" : " (black)")//
+                    + (scale == 0 ? "" : " @" + scale + "x"));
+        }
+        return image(found);
+    }
+
+    private BufferedImage image(int index) {
+        synchronized (images) {
+            BufferedImage image = images[index];
+            if (image == null) {
+                int entry = HEADER_SIZE + index * ENTRY_SIZE;
+                int width = buffer.getInt(entry + 12);
+                int height = buffer.getInt(entry + 16);
+                int offset = buffer.getInt(entry + 20);
+
+                ByteBuffer pixels = buffer.duplicate();
+                // Buffer methods, ByteBuffer overloads don't exist on Java 8
+                ((Buffer) pixels).position(offset);
+                ((Buffer) pixels).limit(offset + width * height * 4);
+                int[] data = new int[width * height];
+                pixels.slice().asIntBuffer().get(data);
+
+                // DataBufferInt + default premultiplied model = TYPE_INT_ARGB_PRE (not TYPE_CUSTOM)
+                WritableRaster raster = Raster.createPackedRaster(new DataBufferInt(data, data.length), width, height, width, //
+                        PREMULTIPLIED_ARGB.getMasks(), null);
+                image = new BufferedImage(PREMULTIPLIED_ARGB, raster, true, null);
+                images[index] = image;
+            }
+            return image;
+        }
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2020 dyorgio.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package dyorgio.runtime.macos.trayicon.fixer.image;
+
+import java.awt.Graphics2D;
+import java.awt.Image;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import javax.imageio.ImageIO;
+
+/**
+ * Build-time converter of icon images into an {@link IconBundle}.
+ *
+ * @author dyorgio
+ */
+public final class IconBundleWriter {
+
+    private final List<Entry> entries = new ArrayList<Entry>();
+
+    public IconBundleWriter add(int frame, boolean white, int scale, Image image) {
+        if (frame < 0) {
+            throw new IllegalArgumentException("Frame cannot be negative");
+        }
+        if (scale <= 0) {
+            throw new IllegalArgumentException("Scale must be positive");
+        }
+        int width = image.getWidth(null);
+        int height = image.getHeight(null);
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("Image is not loaded");
+        }
+        BufferedImage premultiplied = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB_PRE);
+        Graphics2D g = premultiplied.createGraphics();
+        try {
+            g.drawImage(image, 0, 0, null);
+        } finally {
+            g.dispose();
+        }
+        entries.add(new Entry(frame, white ? IconBundle.WHITE : IconBundle.BLACK, scale, width, height, //
+                ((DataBufferInt) premultiplied.getRaster().getDataBuffer()).getData()));
+        return this;
+    }
+
+    public void write(File file) throws IOException {
+        OutputStream out = new BufferedOutputStream(new FileOutputStream(file));
+        try {
+            write(out);
+        } finally {
+            out.close();
+        }
+    }
+
+    public void write(OutputStream output) throws IOException {
+        DataOutputStream out = new DataOutputStream(output);
+        out.writeInt(IconBundle.MAGIC);
+        out.writeInt(IconBundle.VERSION);
+        out.writeInt(entries.size());
+        int offset = IconBundle.HEADER_SIZE + entries.size() * IconBundle.ENTRY_SIZE;
+        for (Entry entry : entries) {
+            out.writeInt(entry.frame);
+            out.writeInt(entry.variant);
+            out.writeInt(entry.scale);
+            out.writeInt(entry.width);
+            out.writeInt(entry.height);
+            out.writeInt(offset);
+            offset += entry.pixels.length * 4;
+        }
+        for (Entry entry : entries) {
+            for (int pixel : entry.pixels) {
+                out.writeInt(pixel);
+            }
+        }
+        out.flush();
+    }
+
+    /**
+     * Usage: IconBundleWriter &lt;output&gt; &lt;scale&gt; &lt;black0&gt;
+     * &lt;white0&gt; [&lt;black1&gt; &lt;white1&gt; ...]
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 4 || args.length % 2 != 0) {
+            System.err.println("Usage: " + IconBundleWriter.class.getName() + " <output> <scale> <black0> <white0> [<black1> <white1> ...]");
+            System.exit(1);
+            return;
+        }
+        int scale = Integer.parseInt(args[1]);
+        IconBundleWriter writer = new IconBundleWriter();
+        for (int i = 2; i < args.length; i += 2) {
+            int frame = (i - 2) / 2;
+            writer.add(frame, false, scale, read(new File(args[i])));
+            writer.add(frame, true, scale, read(new File(args[i + 1])));
+        }
+        writer.write(new File(args[0]));
+    }
+
+    private static BufferedImage read(File file) throws IOException {
+        BufferedImage image = ImageIO.read(file);
+        if (image == null) {
+            throw new IOException("Unsupported image format: " + file);
+        }
+        return image;
+    }
+
+    private static final class Entry {
+
+        private final int frame;
+        private final int variant;
+        private final int scale;
+        private final int width;
+        private final int height;
+        private final int[] pixels;
+
+        private Entry(int frame, int variant, int scale, int width, int height, int[] pixels) {
+            this.frame = frame;
+            this.variant = variant;
+            this.scale = scale;
+            this.width = width;
+            this.height = height;
+            this.pixels = pixels;
+        }
+    }
+}
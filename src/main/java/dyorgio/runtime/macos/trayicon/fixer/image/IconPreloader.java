@@ -0,0 +1,142 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2020 dyorgio.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package dyorgio.runtime.macos.trayicon.fixer.image;
+
+import dyorgio.runtime.macos.trayicon.fixer.MacOSTrayIconFixer;
+import dyorgio.runtime.macos.trayicon.fixer.PreparedImage;
+import java.awt.Image;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.net.URL;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.imageio.ImageIO;
+
+/**
+ * Decodes and prepares (see
+ * {@link MacOSTrayIconFixer#prepareImage(java.awt.Image, java.awt.Image)})
+ * icon frames in parallel.<br>
+ * Frames are submitted in order, so first frame is usually ready while the
+ * others are still being processed.
+ *
+ * @author dyorgio
+ */
+public final class IconPreloader {
+
+    private static final AtomicInteger THREAD_COUNTER = new AtomicInteger();
+
+    private final ExecutorService executor;
+
+    /**
+     * Creates a preloader with one daemon thread per available processor.
+     */
+    public IconPreloader() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    public IconPreloader(int threads) {
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS, //
+                new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "IconPreloader-" + THREAD_COUNTER.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        pool.allowCoreThreadTimeOut(true);
+        this.executor = pool;
+    }
+
+    public IconPreloader(ExecutorService executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Decodes and prepares each black/white pair of resources.
+     */
+    public PreloadedIcons preload(URL[] blackImages, URL[] whiteImages) {
+        if (blackImages.length != whiteImages.length) {
+            throw new IllegalArgumentException("Black and white images count doesn't match");
+        }
+        final PreloadedIcons icons = new PreloadedIcons(blackImages.length);
+        for (int i = 0; i < blackImages.length; i++) {
+            final int frame = i;
+            final URL black = blackImages[i];
+            final URL white = whiteImages[i];
+            icons.frames.add(executor.submit(new Callable<PreparedImage>() {
+                @Override
+                public PreparedImage call() throws Exception {
+                    long start = System.nanoTime();
+                    Image blackImage = read(black);
+                    Image whiteImage = read(white);
+                    long decoded = System.nanoTime();
+                    icons.decodeNanos.set(frame, decoded - start);
+                    PreparedImage image = MacOSTrayIconFixer.prepareImage(blackImage, whiteImage);
+                    icons.prepareNanos.set(frame, System.nanoTime() - decoded);
+                    return image;
+                }
+            }));
+        }
+        return icons;
+    }
+
+    /**
+     * Prepares each frame of an already loaded icon set, decode time is
+     * reported as zero.
+     */
+    public PreloadedIcons preload(final IconSet iconSet) {
+        final PreloadedIcons icons = new PreloadedIcons(iconSet.getFrameCount());
+        for (int i = 0; i < iconSet.getFrameCount(); i++) {
+            final int frame = i;
+            icons.frames.add(executor.submit(new Callable<PreparedImage>() {
+                @Override
+                public PreparedImage call() throws Exception {
+                    long start = System.nanoTime();
+                    PreparedImage image = MacOSTrayIconFixer.prepareImage(iconSet.getBlackImage(frame), iconSet.getWhiteImage(frame));
+                    icons.prepareNanos.set(frame, System.nanoTime() - start);
+                    return image;
+                }
+            }));
+        }
+        return icons;
+    }
+
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    private static Image read(URL url) throws IOException {
+        BufferedImage image = ImageIO.read(url);
+        if (image == null) {
+            throw new IOException("Unsupported image format: " + url);
+        }
+        return image;
+    }
+}
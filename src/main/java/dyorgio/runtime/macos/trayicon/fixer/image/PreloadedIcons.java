@@ -0,0 +1,91 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2020 dyorgio.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package dyorgio.runtime.macos.trayicon.fixer.image;
+
+import dyorgio.runtime.macos.trayicon.fixer.PreparedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Frames being loaded by {@link IconPreloader}, with per stage timings of
+ * each finished frame.
+ *
+ * @author dyorgio
+ */
+public final class PreloadedIcons {
+
+    // filled (in frame order) by IconPreloader before being returned
+    final List<Future<PreparedImage>> frames;
+    final AtomicLongArray decodeNanos;
+    final AtomicLongArray prepareNanos;
+
+    PreloadedIcons(int frameCount) {
+        this.frames = new ArrayList<Future<PreparedImage>>(frameCount);
+        this.decodeNanos = new AtomicLongArray(frameCount);
+        this.prepareNanos = new AtomicLongArray(frameCount);
+    }
+
+    public int getFrameCount() {
+        return frames.size();
+    }
+
+    public Future<PreparedImage> getFrame(int frame) {
+        return frames.get(frame);
+    }
+
+    public boolean isDone() {
+        for (Future<PreparedImage> frame : frames) {
+            if (!frame.isDone()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public long getDecodeNanos(int frame) {
+        return decodeNanos.get(frame);
+    }
+
+    public long getPrepareNanos(int frame) {
+        return prepareNanos.get(frame);
+    }
+
+    public long getTotalDecodeNanos() {
+        long total = 0;
+        for (int i = 0; i < frames.size(); i++) {
+            total += decodeNanos.get(i);
+        }
+        return total;
+    }
+
+    public long getTotalPrepareNanos() {
+        long total = 0;
+        for (int i = 0; i < frames.size(); i++) {
+            total += prepareNanos.get(i);
+        }
+        return total;
+    }
+}
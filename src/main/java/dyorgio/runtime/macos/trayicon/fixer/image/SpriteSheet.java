@@ -0,0 +1,117 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2020 dyorgio.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package dyorgio.runtime.macos.trayicon.fixer.image;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import javax.imageio.ImageIO;
+
+/**
+ * Single image holding all frames side by side, black frames on first row and
+ * white frames on second row.<br>
+ * Frames are sliced on first access as sub-images sharing the sheet raster, no
+ * pixel is copied.
+ *
+ * @author dyorgio
+ */
+public final class SpriteSheet implements IconSet {
+
+    private final BufferedImage sheet;
+    private final int frameWidth;
+    private final int frameHeight;
+    private final int frameCount;
+    private final BufferedImage[] blackFrames;
+    private final BufferedImage[] whiteFrames;
+
+    public SpriteSheet(BufferedImage sheet, int frameWidth, int frameHeight) {
+        if (frameWidth <= 0 || frameHeight <= 0) {
+            throw new IllegalArgumentException("Frame size must be positive");
+        }
+        if (sheet.getWidth() % frameWidth != 0 || sheet.getHeight() != frameHeight * 2) {
+            throw new IllegalArgumentException("Sheet size " + sheet.getWidth() + "x" + sheet.getHeight()//
+                    + " doesn't match two rows of " + frameWidth + "x" + frameHeight + " frames");
+        }
+        this.sheet = sheet;
+        this.frameWidth = frameWidth;
+        this.frameHeight = frameHeight;
+        this.frameCount = sheet.getWidth() / frameWidth;
+        this.blackFrames = new BufferedImage[frameCount];
+        this.whiteFrames = new BufferedImage[frameCount];
+    }
+
+    public static SpriteSheet read(URL url, int frameWidth, int frameHeight) throws IOException {
+        BufferedImage sheet = ImageIO.read(url);
+        if (sheet == null) {
+            throw new IOException("Unsupported image format: " + url);
+        }
+        return new SpriteSheet(sheet, frameWidth, frameHeight);
+    }
+
+    public static SpriteSheet read(InputStream input, int frameWidth, int frameHeight) throws IOException {
+        BufferedImage sheet = ImageIO.read(input);
+        if (sheet == null) {
+            throw new IOException("Unsupported image format");
+        }
+        return new SpriteSheet(sheet, frameWidth, frameHeight);
+    }
+
+    @Override
+    public int getFrameCount() {
+        return frameCount;
+    }
+
+    public int getFrameWidth() {
+        return frameWidth;
+    }
+
+    public int getFrameHeight() {
+        return frameHeight;
+    }
+
+    @Override
+    public BufferedImage getBlackImage(int frame) {
+        return slice(blackFrames, frame, 0);
+    }
+
+    @Override
+    public BufferedImage getWhiteImage(int frame) {
+        return slice(whiteFrames, frame, 1);
+    }
+
+    private BufferedImage slice(BufferedImage[] frames, int frame, int row) {
+        if (frame < 0 || frame >= frameCount) {
+            throw new IndexOutOfBoundsException("Frame " + frame + " of " + frameCount);
+        }
+        synchronized (frames) {
+            BufferedImage image = frames[frame];
+            if (image == null) {
+                image = sheet.getSubimage(frame * frameWidth, row * frameHeight, frameWidth, frameHeight);
+                frames[frame] = image;
+            }
+            return image;
+        }
+    }
+}
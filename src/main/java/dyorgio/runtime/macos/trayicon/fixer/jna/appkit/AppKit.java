@@ -32,4 +32,6 @@ public class AppKit {
     public static final double NSSquareStatusItemLength = -2;
     public static final double NSVariableStatusItemLength = -1;
 
+    public static final int NSImageLeft = 2;
+
 }
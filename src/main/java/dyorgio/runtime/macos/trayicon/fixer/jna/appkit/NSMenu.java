@@ -0,0 +1,76 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2020 dyorgio.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package dyorgio.runtime.macos.trayicon.fixer.jna.appkit;
+
+import com.sun.jna.NativeLong;
+import dyorgio.runtime.macos.trayicon.fixer.jna.foundation.NSObject;
+import dyorgio.runtime.macos.trayicon.fixer.jna.foundation.NSString;
+import dyorgio.runtime.macos.trayicon.fixer.jna.foundation.ObjC;
+
+/**
+ *
+ * @author dyorgio
+ */
+public class NSMenu extends NSObject {
+
+    private static final long menuClass = ObjC.getClass("NSMenu");
+    private static final long initWithTitleSel = ObjC.selector("initWithTitle:");
+    private static final long addItemSel = ObjC.selector("addItem:");
+    private static final long insertItemAtIndexSel = ObjC.selector("insertItem:atIndex:");
+    private static final long removeItemAtIndexSel = ObjC.selector("removeItemAtIndex:");
+    private static final long removeAllItemsSel = ObjC.selector("removeAllItems");
+    private static final long numberOfItemsSel = ObjC.selector("numberOfItems");
+    private static final long setAutoenablesItemsSel = ObjC.selector("setAutoenablesItems:");
+
+    public NSMenu(String title) {
+        super(new NativeLong(ObjC.send(ObjC.send(menuClass, allocSelId), //
+                initWithTitleSel, new NSString(title).getId().longValue())));
+        // enabled state is controlled by items
+        ObjC.send(getId().longValue(), setAutoenablesItemsSel, false);
+    }
+
+    public NSMenu(NativeLong id) {
+        super(id);
+    }
+
+    public void addItem(NSMenuItem item) {
+        ObjC.send(getId().longValue(), addItemSel, item.getId().longValue());
+    }
+
+    public void insertItem(NSMenuItem item, int index) {
+        ObjC.send(getId().longValue(), insertItemAtIndexSel, item.getId().longValue(), index);
+    }
+
+    public void removeItemAtIndex(int index) {
+        ObjC.send(getId().longValue(), removeItemAtIndexSel, index);
+    }
+
+    public void removeAllItems() {
+        ObjC.send(getId().longValue(), removeAllItemsSel);
+    }
+
+    public int numberOfItems() {
+        return (int) ObjC.send(getId().longValue(), numberOfItemsSel);
+    }
+}
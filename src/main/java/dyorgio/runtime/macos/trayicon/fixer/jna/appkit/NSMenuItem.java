@@ -0,0 +1,78 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2020 dyorgio.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package dyorgio.runtime.macos.trayicon.fixer.jna.appkit;
+
+import com.sun.jna.NativeLong;
+import dyorgio.runtime.macos.trayicon.fixer.jna.foundation.ActionCallback;
+import dyorgio.runtime.macos.trayicon.fixer.jna.foundation.NSObject;
+import dyorgio.runtime.macos.trayicon.fixer.jna.foundation.NSString;
+import dyorgio.runtime.macos.trayicon.fixer.jna.foundation.ObjC;
+
+/**
+ *
+ * @author dyorgio
+ */
+public class NSMenuItem extends NSObject {
+
+    private static final long menuItemClass = ObjC.getClass("NSMenuItem");
+    private static final long separatorItemSel = ObjC.selector("separatorItem");
+    private static final long retainSel = ObjC.selector("retain");
+    private static final long setTitleSel = ObjC.selector("setTitle:");
+    private static final long setEnabledSel = ObjC.selector("setEnabled:");
+    private static final long setSubmenuSel = ObjC.selector("setSubmenu:");
+
+    public NSMenuItem(String title) {
+        super(new NativeLong(ObjC.send(ObjC.send(menuItemClass, allocSelId), initSelId)));
+        setTitle(title);
+    }
+
+    public NSMenuItem(NativeLong id) {
+        super(id);
+    }
+
+    public static NSMenuItem separatorItem() {
+        // retained, released by finalize
+        return new NSMenuItem(new NativeLong(ObjC.send(ObjC.send(menuItemClass, separatorItemSel), retainSel)));
+    }
+
+    public final void setTitle(String title) {
+        ObjC.send(getId().longValue(), setTitleSel, new NSString(title).getId().longValue());
+    }
+
+    public void setEnabled(boolean enabled) {
+        ObjC.send(getId().longValue(), setEnabledSel, enabled);
+    }
+
+    public void setSubmenu(NSMenu submenu) {
+        ObjC.send(getId().longValue(), setSubmenuSel, submenu == null ? ObjC.NIL : submenu.getId().longValue());
+    }
+
+    /**
+     * NSMenuItem doesn't retain its target, keep action referenced while item
+     * is alive.
+     */
+    public void setAction(ActionCallback action) {
+        action.installActionOnNSControl(getId());
+    }
+}
@@ -23,10 +23,8 @@
  */
 package dyorgio.runtime.macos.trayicon.fixer.jna.foundation;
 
-import com.sun.jna.Callback;
 import com.sun.jna.NativeLong;
 import com.sun.jna.Pointer;
-import java.util.HashMap;
 
 /**
  *
@@ -35,22 +33,23 @@ import java.util.HashMap;
 @SuppressWarnings("Convert2Lambda")
 public final class ActionCallback extends NSObject {
 
-    private static final NativeLong actionCallbackClass = Foundation.INSTANCE.objc_allocateClassPair(NSObject.objectClass, ActionCallback.class.getSimpleName(), 0);
-    private static final Pointer actionCallbackSel = Foundation.INSTANCE.sel_registerName("actionCallback");
-    private static final Pointer setTargetSel = Foundation.INSTANCE.sel_registerName("setTarget:");
-    private static final Pointer setActionSel = Foundation.INSTANCE.sel_registerName("setAction:");
-    private static final Callback registerActionCallback;
+    private static final long actionCallbackClass = ObjC.runtime().allocateClassPair(NSObject.objectClass.longValue(), ActionCallback.class.getSimpleName());
+    private static final long actionCallbackSelId = ObjC.selector("actionCallback");
+    private static final Pointer actionCallbackSel = new Pointer(actionCallbackSelId);
+    private static final long setTargetSelId = ObjC.selector("setTarget:");
+    private static final long setActionSelId = ObjC.selector("setAction:");
+    private static final ObjCMethod registerActionCallback;
 
     static {
         startNativeAppMainThread();
-        registerActionCallback = new Callback() {
-            @SuppressWarnings("unused")
-            public void callback(Pointer self, Pointer selector) {
-                if (selector.equals(actionCallbackSel)) {
+        registerActionCallback = new ObjCMethod() {
+            @Override
+            public void invoke(long self, long selector, long arg) {
+                if (selector == actionCallbackSelId) {
                     ActionCallback action;
 
                     synchronized (callbackMap) {
-                        action = callbackMap.get(Pointer.nativeValue(self));
+                        action = callbackMap.get(self);
                     }
 
                     if (action != null) {
@@ -60,21 +59,21 @@ public final class ActionCallback extends NSObject {
             }
         };
 
-        if (!Foundation.INSTANCE.class_addMethod(actionCallbackClass,
-                actionCallbackSel, registerActionCallback, "v@:")) {
+        if (!ObjC.runtime().addMethod(actionCallbackClass,
+                actionCallbackSelId, registerActionCallback, "v@:")) {
             throw new RuntimeException("Error initializing ActionCallback as a objective C class");
         }
 
-        Foundation.INSTANCE.objc_registerClassPair(actionCallbackClass);
+        ObjC.runtime().registerClassPair(actionCallbackClass);
     }
 
-    private static final HashMap<Long, ActionCallback> callbackMap = new HashMap<Long, ActionCallback>();
+    private static final LongMap<ActionCallback> callbackMap = new LongMap<ActionCallback>();
 
     private final Runnable runnable;
 
     @SuppressWarnings("LeakingThisInConstructor")
     public ActionCallback(Runnable callable) {
-        super(Foundation.INSTANCE.class_createInstance(actionCallbackClass, 0));
+        super(new NativeLong(ObjC.runtime().createInstance(actionCallbackClass)));
         this.runnable = callable;
         synchronized (callbackMap) {
             callbackMap.put(getId().longValue(), this);
@@ -90,7 +89,16 @@ public final class ActionCallback extends NSObject {
     }
 
     public void installActionOnNSControl(NativeLong nsControl) {
-        Foundation.INSTANCE.objc_msgSend(nsControl, setTargetSel, id);
-        Foundation.INSTANCE.objc_msgSend(nsControl, setActionSel, actionCallbackSel);
+        long nsControlId = FoundationUtil.idOf(nsControl);
+        ObjC.send(nsControlId, setTargetSelId, id.longValue());
+        ObjC.send(nsControlId, setActionSelId, actionCallbackSelId);
+    }
+
+    /**
+     * Records action installation on a control produced by a command buffer.
+     */
+    public void installActionOnNSControl(CommandBuffer commands, CommandBuffer.Slot nsControl) {
+        commands.send(nsControl, "setTarget:", id);
+        commands.send(nsControl, "setAction:", actionCallbackSel);
     }
 }
@@ -0,0 +1,254 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2020 dyorgio.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package dyorgio.runtime.macos.trayicon.fixer.jna.foundation;
+
+import com.sun.jna.NativeLong;
+import com.sun.jna.Pointer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Recorded sequence of message sends executed atomically on a single main
+ * thread call.<br>
+ * Commands can be recorded from any thread, each one returns a {@link Slot}
+ * that can be used as receiver or argument of later commands and to read its
+ * result after execution. Buffer can be appended and executed many times,
+ * selectors are resolved only when recorded.
+ *
+ * @author dyorgio
+ */
+@SuppressWarnings("Convert2Lambda")
+public final class CommandBuffer {
+
+    private static final int NO_ARG = 0;
+    private static final int BOOLEAN_ARG = 1;
+    private static final int DOUBLE_ARG = 2;
+    private static final int ID_ARG = 3;
+    private static final int SLOT_ARG = 4;
+    private static final int POINTER_ARG = 5;
+
+    private final List<Command> commands = new ArrayList<Command>();
+    private volatile long lastExecutionNanos;
+
+    /**
+     * Result slot of a recorded command.
+     */
+    public static final class Slot {
+
+        private final CommandBuffer buffer;
+        private final int index;
+
+        private Slot(CommandBuffer buffer, int index) {
+            this.buffer = buffer;
+            this.index = index;
+        }
+
+        public int getIndex() {
+            return index;
+        }
+    }
+
+    /**
+     * Values produced by an execution.
+     */
+    public static final class Results {
+
+        private final CommandBuffer buffer;
+        private final long[] values;
+
+        private Results(CommandBuffer buffer, long[] values) {
+            this.buffer = buffer;
+            this.values = values;
+        }
+
+        public NativeLong get(Slot slot) {
+            buffer.check(slot);
+            if (slot.index >= values.length) {
+                throw new IllegalArgumentException("Slot was recorded after execution");
+            }
+            return new NativeLong(values[slot.index]);
+        }
+
+        public int size() {
+            return values.length;
+        }
+    }
+
+    private static final class Command {
+
+        private final Object receiver;
+        // nil on constant values
+        private final long selector;
+        private final int argType;
+        private final Object arg;
+
+        private Command(Object receiver, long selector, int argType, Object arg) {
+            this.receiver = receiver;
+            this.selector = selector;
+            this.argType = argType;
+            this.arg = arg;
+        }
+
+        private long execute(ObjCRuntime runtime, long[] results) {
+            if (selector == ObjC.NIL) {
+                return FoundationUtil.idOf((NativeLong) receiver);
+            }
+            long id = receiver instanceof Slot ? results[((Slot) receiver).index] : FoundationUtil.idOf((NativeLong) receiver);
+            switch (argType) {
+                case BOOLEAN_ARG:
+                    return runtime.msgSend(id, selector, ((Boolean) arg).booleanValue());
+                case DOUBLE_ARG:
+                    return runtime.msgSend(id, selector, ((Double) arg).doubleValue());
+                case ID_ARG:
+                    return runtime.msgSend(id, selector, FoundationUtil.idOf((NativeLong) arg));
+                case SLOT_ARG:
+                    return runtime.msgSend(id, selector, results[((Slot) arg).index]);
+                case POINTER_ARG:
+                    return runtime.msgSend(id, selector, Pointer.nativeValue((Pointer) arg));
+                default:
+                    return runtime.msgSend(id, selector);
+            }
+        }
+    }
+
+    /**
+     * Records a constant, useful to choose a receiver at recording time.
+     */
+    public Slot value(NativeLong id) {
+        return add(id, null, NO_ARG, null);
+    }
+
+    public Slot send(NativeLong receiver, String selector) {
+        return add(receiver, selector, NO_ARG, null);
+    }
+
+    public Slot send(NativeLong receiver, String selector, boolean arg) {
+        return add(receiver, selector, BOOLEAN_ARG, arg);
+    }
+
+    public Slot send(NativeLong receiver, String selector, double arg) {
+        return add(receiver, selector, DOUBLE_ARG, arg);
+    }
+
+    public Slot send(NativeLong receiver, String selector, NativeLong arg) {
+        return add(receiver, selector, ID_ARG, arg);
+    }
+
+    public Slot send(NativeLong receiver, String selector, Slot arg) {
+        return add(receiver, selector, SLOT_ARG, check(arg));
+    }
+
+    public Slot send(NativeLong receiver, String selector, Pointer arg) {
+        return add(receiver, selector, POINTER_ARG, arg);
+    }
+
+    public Slot send(Slot receiver, String selector) {
+        return add(check(receiver), selector, NO_ARG, null);
+    }
+
+    public Slot send(Slot receiver, String selector, boolean arg) {
+        return add(check(receiver), selector, BOOLEAN_ARG, arg);
+    }
+
+    public Slot send(Slot receiver, String selector, double arg) {
+        return add(check(receiver), selector, DOUBLE_ARG, arg);
+    }
+
+    public Slot send(Slot receiver, String selector, NativeLong arg) {
+        return add(check(receiver), selector, ID_ARG, arg);
+    }
+
+    public Slot send(Slot receiver, String selector, Slot arg) {
+        return add(check(receiver), selector, SLOT_ARG, check(arg));
+    }
+
+    public Slot send(Slot receiver, String selector, Pointer arg) {
+        return add(check(receiver), selector, POINTER_ARG, arg);
+    }
+
+    public synchronized int size() {
+        return commands.size();
+    }
+
+    public synchronized void clear() {
+        commands.clear();
+    }
+
+    /**
+     * @return duration of last execution on main thread.
+     */
+    public long getLastExecutionNanos() {
+        return lastExecutionNanos;
+    }
+
+    /**
+     * Executes all recorded commands on one main thread call, waiting up to
+     * default main thread timeout.
+     */
+    public Results execute() throws InterruptedException, ExecutionException {
+        return FoundationUtil.callOnMainThreadAndWait(executor(snapshot()));
+    }
+
+    public Results execute(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+        return FoundationUtil.callOnMainThreadAndWait(executor(snapshot()), timeout, unit);
+    }
+
+    private synchronized Command[] snapshot() {
+        return commands.toArray(new Command[commands.size()]);
+    }
+
+    private Callable<Results> executor(final Command[] snapshot) {
+        return new Callable<Results>() {
+            @Override
+            public Results call() {
+                long start = System.nanoTime();
+                ObjCRuntime runtime = ObjC.runtime();
+                long[] results = new long[snapshot.length];
+                for (int i = 0; i < snapshot.length; i++) {
+                    results[i] = snapshot[i].execute(runtime, results);
+                }
+                lastExecutionNanos = System.nanoTime() - start;
+                FoundationUtil.COMMAND_BUFFER_EXECUTION.record(lastExecutionNanos);
+                return new Results(CommandBuffer.this, results);
+            }
+        };
+    }
+
+    private synchronized Slot add(Object receiver, String selector, int argType, Object arg) {
+        Slot slot = new Slot(this, commands.size());
+        commands.add(new Command(receiver, selector == null ? ObjC.NIL : ObjC.selector(selector), argType, arg));
+        return slot;
+    }
+
+    private Slot check(Slot slot) {
+        if (slot.buffer != this) {
+            throw new IllegalArgumentException("Slot belongs to another CommandBuffer");
+        }
+        return slot;
+    }
+}
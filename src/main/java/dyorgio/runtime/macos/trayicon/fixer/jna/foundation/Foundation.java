@@ -30,6 +30,8 @@ import com.sun.jna.NativeLong;
 import com.sun.jna.Pointer;
 
 /**
+ * JNA Library proxy of Objective-C runtime, kept for compatibility. Library
+ * message sends go through {@link ObjC#runtime()} instead.
  *
  * @author dyorgio
  */
@@ -61,6 +63,9 @@ public interface Foundation extends Library {
 
     NativeLong objc_msgSend(NativeLong receiver, Pointer selector, double doubleArg);
 
+    // Used by NSMenu.insertItem
+    NativeLong objc_msgSend(NativeLong receiver, Pointer selector, NativeLong objAddress, long longArg);
+
     // Used by NSObject.performSelectorOnMainThread
     NativeLong objc_msgSend(NativeLong receiver, Pointer selector, Pointer selectorDst, NativeLong objAddress, boolean wait);
 
@@ -0,0 +1,173 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2020 dyorgio.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package dyorgio.runtime.macos.trayicon.fixer.jna.foundation;
+
+import com.sun.jna.Callback;
+import com.sun.jna.Native;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * JNA direct mapping of Objective-C runtime with primitive long ids and
+ * selectors, default {@link ObjCRuntime}.
+ *
+ * @author dyorgio
+ */
+public final class FoundationLong implements ObjCRuntime {
+
+    static {
+        Native.register("Foundation");
+    }
+
+    public static final FoundationLong INSTANCE = new FoundationLong();
+
+    // classes are never disposed, keeps callbacks alive
+    private static final List<Callback> METHODS = new ArrayList<Callback>();
+
+    private FoundationLong() {
+    }
+
+    private static native long objc_getClass(String className);
+
+    private static native long sel_registerName(String selectorName);
+
+    private static native long objc_allocateClassPair(long superClass, String name, long extraBytes);
+
+    private static native void objc_registerClassPair(long clazz);
+
+    private static native long class_createInstance(long clazz, int extraBytes);
+
+    private static native boolean class_addMethod(long clazz, long selector, Callback callback, String types);
+
+    private static native long class_getInstanceVariable(long clazz, String name);
+
+    private static native long object_getIvar(long object, long ivar);
+
+    private static native long objc_msgSend(long receiver, long selector);
+
+    private static native long objc_msgSend(long receiver, long selector, long arg);
+
+    private static native long objc_msgSend(long receiver, long selector, boolean arg);
+
+    private static native long objc_msgSend(long receiver, long selector, double arg);
+
+    private static native long objc_msgSend(long receiver, long selector, long arg, long arg2);
+
+    private static native long objc_msgSend(long receiver, long selector, long arg, long arg2, boolean arg3);
+
+    private static native long objc_msgSend(long receiver, long selector, byte[] bytes, long arg, long arg2);
+
+    @Override
+    public long getClass(String className) {
+        return objc_getClass(className);
+    }
+
+    @Override
+    public long registerSelector(String selectorName) {
+        return sel_registerName(selectorName);
+    }
+
+    @Override
+    public long allocateClassPair(long superClass, String name) {
+        return objc_allocateClassPair(superClass, name, 0);
+    }
+
+    @Override
+    public void registerClassPair(long clazz) {
+        objc_registerClassPair(clazz);
+    }
+
+    @Override
+    public long createInstance(long clazz) {
+        return class_createInstance(clazz, 0);
+    }
+
+    @Override
+    public boolean addMethod(long clazz, long selector, ObjCMethod method, String types) {
+        MethodCallback callback = new MethodCallback(method);
+        synchronized (METHODS) {
+            METHODS.add(callback);
+        }
+        return class_addMethod(clazz, selector, callback, types);
+    }
+
+    @Override
+    public long getInstanceVariable(long clazz, String name) {
+        return class_getInstanceVariable(clazz, name);
+    }
+
+    @Override
+    public long getIvar(long object, long ivar) {
+        return object_getIvar(object, ivar);
+    }
+
+    @Override
+    public long msgSend(long receiver, long selector) {
+        return objc_msgSend(receiver, selector);
+    }
+
+    @Override
+    public long msgSend(long receiver, long selector, long arg) {
+        return objc_msgSend(receiver, selector, arg);
+    }
+
+    @Override
+    public long msgSend(long receiver, long selector, boolean arg) {
+        return objc_msgSend(receiver, selector, arg);
+    }
+
+    @Override
+    public long msgSend(long receiver, long selector, double arg) {
+        return objc_msgSend(receiver, selector, arg);
+    }
+
+    @Override
+    public long msgSend(long receiver, long selector, long arg, long arg2) {
+        return objc_msgSend(receiver, selector, arg, arg2);
+    }
+
+    @Override
+    public long msgSend(long receiver, long selector, long arg, long arg2, boolean arg3) {
+        return objc_msgSend(receiver, selector, arg, arg2, arg3);
+    }
+
+    @Override
+    public long msgSend(long receiver, long selector, byte[] bytes, long arg, long arg2) {
+        return objc_msgSend(receiver, selector, bytes, arg, arg2);
+    }
+
+    private static final class MethodCallback implements Callback {
+
+        private final ObjCMethod method;
+
+        MethodCallback(ObjCMethod method) {
+            this.method = method;
+        }
+
+        @SuppressWarnings("unused")
+        public void callback(long self, long selector, long arg) {
+            method.invoke(self, selector, arg);
+        }
+    }
+}
@@ -25,9 +25,16 @@ package dyorgio.runtime.macos.trayicon.fixer.jna.foundation;
 
 import com.sun.jna.NativeLong;
 import com.sun.jna.Pointer;
+import java.lang.reflect.InvocationTargetException;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.swing.SwingUtilities;
 
 /**
  *
@@ -35,10 +42,26 @@ import java.util.concurrent.FutureTask;
  */
 public final class FoundationUtil {
 
-    private static final Foundation FOUNDATION = Foundation.INSTANCE;
-
     public static final NativeLong NULL = new NativeLong(0l);
 
+    public static final String MAIN_THREAD_TIMEOUT_PROPERTY = "dyorgio.runtime.macos.trayicon.fixer.mainThreadTimeout";
+    public static final String MAIN_THREAD_EDT_TIMEOUT_PROPERTY = "dyorgio.runtime.macos.trayicon.fixer.mainThreadEdtTimeout";
+
+    // raw handles, isMainThread is called on every main thread wait
+    private static final long nsThreadClassId = ObjC.getClass("NSThread");
+    private static final long isMainThreadSelId = ObjC.selector("isMainThread");
+
+    static final LatencyHistogram MAIN_THREAD_LATENCY = new LatencyHistogram();
+    static final LatencyHistogram COMMAND_BUFFER_EXECUTION = new LatencyHistogram();
+    static final AtomicLong MAIN_THREAD_HOPS = new AtomicLong();
+    private static final AtomicLong TIMEOUTS = new AtomicLong();
+    private static final AtomicLong ASYNC_FALLBACKS = new AtomicLong();
+
+    private static volatile long mainThreadTimeoutMillis = Long.getLong(MAIN_THREAD_TIMEOUT_PROPERTY, 0);
+    private static volatile long mainThreadEdtTimeoutMillis = Long.getLong(MAIN_THREAD_EDT_TIMEOUT_PROPERTY, 1000);
+    // main thread waits on EDT in progress (see invokeAndWaitFromMainThread)
+    private static final AtomicInteger MAIN_THREAD_EDT_WAITS = new AtomicInteger();
+
     private FoundationUtil() {
     }
 
@@ -58,32 +81,98 @@ public final class FoundationUtil {
         return !NULL.equals(id);
     }
 
+    /**
+     * @return raw id of object, nil if null (see {@link ObjC}).
+     */
+    static long idOf(NativeLong id) {
+        return id == null ? ObjC.NIL : id.longValue();
+    }
+
+    // invoke methods send through ObjC.runtime(), same path of long handles
+
     public static NativeLong invoke(NativeLong id, String selector) {
-        return FOUNDATION.objc_msgSend(id, Foundation.INSTANCE.sel_registerName(selector));
+        return new NativeLong(ObjC.send(idOf(id), ObjC.selector(selector)));
     }
 
     public static NativeLong invoke(NativeLong id, String selector, boolean boolArg) {
-        return FOUNDATION.objc_msgSend(id, Foundation.INSTANCE.sel_registerName(selector), boolArg);
+        return new NativeLong(ObjC.send(idOf(id), ObjC.selector(selector), boolArg));
     }
 
     public static NativeLong invoke(NativeLong id, String selector, double doubleArg) {
-        return FOUNDATION.objc_msgSend(id, Foundation.INSTANCE.sel_registerName(selector), doubleArg);
+        return new NativeLong(ObjC.send(idOf(id), ObjC.selector(selector), doubleArg));
     }
 
     public static NativeLong invoke(NativeLong id, String selector, NativeLong objAddress) {
-        return FOUNDATION.objc_msgSend(id, Foundation.INSTANCE.sel_registerName(selector), objAddress);
+        return new NativeLong(ObjC.send(idOf(id), ObjC.selector(selector), idOf(objAddress)));
     }
 
     public static NativeLong invoke(NativeLong id, Pointer selectorPointer) {
-        return FOUNDATION.objc_msgSend(id, selectorPointer);
+        return new NativeLong(ObjC.send(idOf(id), Pointer.nativeValue(selectorPointer)));
     }
 
     public static NativeLong invoke(NativeLong id, Pointer selectorPointer, NativeLong objAddress) {
-        return FOUNDATION.objc_msgSend(id, selectorPointer, objAddress);
+        return new NativeLong(ObjC.send(idOf(id), Pointer.nativeValue(selectorPointer), idOf(objAddress)));
+    }
+
+    /**
+     * Waits main thread execution, forever unless a default timeout is set
+     * (see {@link #setMainThreadTimeout(long, java.util.concurrent.TimeUnit)}).
+     * <br>
+     * From EDT task may be left to run asynchronously, see
+     * {@link #tryRunOnMainThreadAndWait(java.lang.Runnable, long, java.util.concurrent.TimeUnit)}.
+     *
+     * @throws CancellationException if a default timeout is set and elapses.
+     */
+    public static void runOnMainThreadAndWait(Runnable runnable) throws InterruptedException, ExecutionException, CancellationException {
+        tryRunOnMainThreadAndWait(runnable);
+    }
+
+    /**
+     * Same as {@link #runOnMainThreadAndWait(java.lang.Runnable)}.
+     *
+     * @return false if task was left to run asynchronously.
+     */
+    public static boolean tryRunOnMainThreadAndWait(Runnable runnable) throws InterruptedException, ExecutionException, CancellationException {
+        try {
+            return tryRunOnMainThreadAndWait(runnable, mainThreadTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            throw timedOut(e);
+        }
     }
 
-    public static void runOnMainThreadAndWait(Runnable runnable) throws InterruptedException, ExecutionException {
-        runOnMainThread(runnable, true);
+    /**
+     * Runs on main thread waiting at most timeout (zero to wait forever), on
+     * timeout task is cancelled if it is still queued.<br>
+     * From EDT, task is left to run asynchronously instead of failing or
+     * blocking forever.
+     */
+    public static void runOnMainThreadAndWait(Runnable runnable, long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+        tryRunOnMainThreadAndWait(runnable, timeout, unit);
+    }
+
+    /**
+     * Runs on main thread waiting at most timeout (zero to wait forever), on
+     * timeout task is cancelled if it is still queued.<br>
+     * Main thread may be blocked waiting on EDT (e.g. AppKit callbacks
+     * calling LWCToolkit.invokeAndWait), only waits started by
+     * {@link #invokeAndWaitFromMainThread(java.lang.Runnable)} can be
+     * detected. So from EDT:
+     * <ul>
+     * <li>a detected cycle leaves task to run asynchronously right away;</li>
+     * <li>an unbounded wait is bounded by EDT timeout (see
+     * {@link #setMainThreadEdtTimeout(long, java.util.concurrent.TimeUnit)}),
+     * covering undetected cycles;</li>
+     * <li>an elapsed timeout leaves task to run asynchronously instead of
+     * cancelling it.</li>
+     * </ul>
+     *
+     * @return true if task ran, false if it is still queued to run
+     * asynchronously, state changed by task must be recorded by task itself.
+     */
+    public static boolean tryRunOnMainThreadAndWait(Runnable runnable, long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+        FutureTask<Object> futureTask = new FutureTask<Object>(runnable, null);
+        waitOnMainThread(futureTask, timeout, unit, true);
+        return futureTask.isDone();
     }
 
     public static FutureTask runOnMainThread(Runnable runnable, boolean waitUntilDone) {
@@ -92,8 +181,28 @@ public final class FoundationUtil {
         return futureTask;
     }
 
-    public static <T> T callOnMainThreadAndWait(Callable<T> callable) throws InterruptedException, ExecutionException {
-        return callOnMainThread(callable, true).get();
+    /**
+     * Waits main thread execution, forever unless a default timeout is set
+     * (see {@link #setMainThreadTimeout(long, java.util.concurrent.TimeUnit)}).
+     *
+     * @throws CancellationException if a default timeout is set and elapses.
+     */
+    public static <T> T callOnMainThreadAndWait(Callable<T> callable) throws InterruptedException, ExecutionException, CancellationException {
+        try {
+            return callOnMainThreadAndWait(callable, mainThreadTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            throw timedOut(e);
+        }
+    }
+
+    /**
+     * Calls on main thread waiting at most timeout (zero to wait forever), on
+     * timeout task is cancelled if it is still queued.<br>
+     * Result is needed, so there is no asynchronous fallback: from EDT use a
+     * timeout (main thread may be blocked waiting on EDT).
+     */
+    public static <T> T callOnMainThreadAndWait(Callable<T> callable, long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+        return waitOnMainThread(new FutureTask<T>(callable), timeout, unit, false);
     }
 
     public static <T> FutureTask<T> callOnMainThread(Callable<T> callable, boolean waitUntilDone) {
@@ -101,4 +210,143 @@ public final class FoundationUtil {
         FutureTaskCallback.performOnMainThread(futureTask, waitUntilDone);
         return futureTask;
     }
+
+    private static <T> T waitOnMainThread(FutureTask<T> futureTask, long timeout, TimeUnit unit, boolean asyncFallback) throws InterruptedException, ExecutionException, TimeoutException {
+        if (isMainThread()) {
+            futureTask.run();
+            return futureTask.get();
+        }
+
+        boolean edt = asyncFallback && SwingUtilities.isEventDispatchThread();
+        if (edt && isMainThreadWaitingOnEdt()) {
+            ASYNC_FALLBACKS.incrementAndGet();
+            FutureTaskCallback.performOnMainThread(futureTask, false);
+            return null;
+        }
+
+        FutureTaskCallback.performOnMainThread(futureTask, false);
+        if (edt && timeout <= 0 && mainThreadEdtTimeoutMillis > 0) {
+            // cycle may be undetected (main thread waiting on EDT through AWT)
+            timeout = mainThreadEdtTimeoutMillis;
+            unit = TimeUnit.MILLISECONDS;
+        }
+        if (timeout <= 0) {
+            return futureTask.get();
+        }
+        try {
+            return futureTask.get(timeout, unit);
+        } catch (TimeoutException e) {
+            if (edt) {
+                ASYNC_FALLBACKS.incrementAndGet();
+                return null;
+            }
+            futureTask.cancel(false);
+            TIMEOUTS.incrementAndGet();
+            throw e;
+        }
+    }
+
+    private static CancellationException timedOut(TimeoutException e) {
+        CancellationException cancellation = new CancellationException("Main thread call timed out after " + mainThreadTimeoutMillis + "ms");
+        cancellation.initCause(e);
+        return cancellation;
+    }
+
+    public static boolean isMainThread() {
+        return ObjC.sendBool(nsThreadClassId, isMainThreadSelId);
+    }
+
+    /**
+     * Runs on EDT waiting for it, when called from main thread EDT calls to
+     * {@link #runOnMainThreadAndWait(java.lang.Runnable)} run asynchronously
+     * meanwhile instead of deadlocking (without waiting EDT timeout).
+     */
+    public static void invokeAndWaitFromMainThread(Runnable runnable) throws InterruptedException, InvocationTargetException {
+        if (!isMainThread()) {
+            SwingUtilities.invokeAndWait(runnable);
+            return;
+        }
+        MAIN_THREAD_EDT_WAITS.incrementAndGet();
+        try {
+            SwingUtilities.invokeAndWait(runnable);
+        } finally {
+            MAIN_THREAD_EDT_WAITS.decrementAndGet();
+        }
+    }
+
+    /**
+     * @return true while main thread waits on EDT through
+     * {@link #invokeAndWaitFromMainThread(java.lang.Runnable)}.
+     */
+    static boolean isMainThreadWaitingOnEdt() {
+        return MAIN_THREAD_EDT_WAITS.get() > 0;
+    }
+
+    /**
+     * Default timeout used by main thread waits without explicit timeout, zero
+     * to wait forever.<br>
+     * Initial value comes from system property
+     * {@value #MAIN_THREAD_TIMEOUT_PROPERTY} (milliseconds, default 0).
+     */
+    public static void setMainThreadTimeout(long timeout, TimeUnit unit) {
+        if (timeout < 0) {
+            throw new IllegalArgumentException("Timeout cannot be negative");
+        }
+        mainThreadTimeoutMillis = unit.toMillis(timeout);
+    }
+
+    public static long getMainThreadTimeoutMillis() {
+        return mainThreadTimeoutMillis;
+    }
+
+    /**
+     * Bound of main thread waits from EDT without timeout (see
+     * {@link #tryRunOnMainThreadAndWait(java.lang.Runnable, long, java.util.concurrent.TimeUnit)}),
+     * zero to wait forever.<br>
+     * Initial value comes from system property
+     * {@value #MAIN_THREAD_EDT_TIMEOUT_PROPERTY} (milliseconds, default 1000).
+     */
+    public static void setMainThreadEdtTimeout(long timeout, TimeUnit unit) {
+        if (timeout < 0) {
+            throw new IllegalArgumentException("Timeout cannot be negative");
+        }
+        mainThreadEdtTimeoutMillis = unit.toMillis(timeout);
+    }
+
+    public static long getMainThreadEdtTimeoutMillis() {
+        return mainThreadEdtTimeoutMillis;
+    }
+
+    /**
+     * Latency from dispatch to completion of each main thread call.
+     */
+    public static LatencyHistogram getMainThreadLatency() {
+        return MAIN_THREAD_LATENCY;
+    }
+
+    /**
+     * Time spent on main thread by each {@link CommandBuffer} execution.
+     */
+    public static LatencyHistogram getCommandBufferExecution() {
+        return COMMAND_BUFFER_EXECUTION;
+    }
+
+    /**
+     * Total of calls dispatched to main thread.
+     */
+    public static long getMainThreadHops() {
+        return MAIN_THREAD_HOPS.get();
+    }
+
+    public static CommandBuffer newCommandBuffer() {
+        return new CommandBuffer();
+    }
+
+    public static long getMainThreadTimeouts() {
+        return TIMEOUTS.get();
+    }
+
+    public static long getMainThreadAsyncFallbacks() {
+        return ASYNC_FALLBACKS.get();
+    }
 }
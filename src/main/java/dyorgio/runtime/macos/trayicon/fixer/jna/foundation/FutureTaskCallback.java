@@ -23,10 +23,7 @@
  */
 package dyorgio.runtime.macos.trayicon.fixer.jna.foundation;
 
-import com.sun.jna.Callback;
 import com.sun.jna.NativeLong;
-import com.sun.jna.Pointer;
-import java.util.HashMap;
 import java.util.concurrent.FutureTask;
 
 /**
@@ -36,44 +33,49 @@ import java.util.concurrent.FutureTask;
 @SuppressWarnings("Convert2Lambda")
 class FutureTaskCallback<T> extends NSObject {
 
-    private static final NativeLong futureTaskCallbackClass = Foundation.INSTANCE.objc_allocateClassPair(NSObject.objectClass, FutureTaskCallback.class.getSimpleName(), 0);
-    private static final Pointer futureTaskCallbackSel = Foundation.INSTANCE.sel_registerName("futureTaskCallback");
-    private static final Callback registerFutureTaskCallback;
+    private static final long futureTaskCallbackClass = ObjC.runtime().allocateClassPair(NSObject.objectClass.longValue(), FutureTaskCallback.class.getSimpleName());
+    private static final long futureTaskCallbackSelId = ObjC.selector("futureTaskCallback");
+    private static final ObjCMethod registerFutureTaskCallback;
 
     static {
         startNativeAppMainThread();
-        registerFutureTaskCallback = new Callback() {
-            @SuppressWarnings("unused")
-            public void callback(Pointer self, Pointer selector) {
-                if (selector.equals(futureTaskCallbackSel)) {
+        registerFutureTaskCallback = new ObjCMethod() {
+            @Override
+            public void invoke(long self, long selector, long arg) {
+                if (selector == futureTaskCallbackSelId) {
                     FutureTaskCallback action;
 
                     synchronized (callbackMap) {
-                        action = callbackMap.remove(Pointer.nativeValue(self));
+                        action = callbackMap.remove(self);
                     }
 
                     if (action != null) {
-                        action.callable.run();
+                        try {
+                            action.callable.run();
+                        } finally {
+                            FoundationUtil.MAIN_THREAD_LATENCY.record(System.nanoTime() - action.dispatchNanos);
+                        }
                     }
                 }
             }
         };
 
-        if (!Foundation.INSTANCE.class_addMethod(futureTaskCallbackClass,
-                futureTaskCallbackSel, registerFutureTaskCallback, "v@:")) {
+        if (!ObjC.runtime().addMethod(futureTaskCallbackClass,
+                futureTaskCallbackSelId, registerFutureTaskCallback, "v@:")) {
             throw new RuntimeException("Error initializing FutureTaskCallback as a objective C class");
         }
 
-        Foundation.INSTANCE.objc_registerClassPair(futureTaskCallbackClass);
+        ObjC.runtime().registerClassPair(futureTaskCallbackClass);
     }
 
-    private static final HashMap<Long, FutureTaskCallback> callbackMap = new HashMap<Long, FutureTaskCallback>();
+    private static final LongMap<FutureTaskCallback> callbackMap = new LongMap<FutureTaskCallback>();
 
     private final FutureTask<T> callable;
+    private final long dispatchNanos = System.nanoTime();
 
     @SuppressWarnings("LeakingThisInConstructor")
     private FutureTaskCallback(FutureTask<T> callable) {
-        super(Foundation.INSTANCE.class_createInstance(futureTaskCallbackClass, 0));
+        super(new NativeLong(ObjC.runtime().createInstance(futureTaskCallbackClass)));
         this.callable = callable;
         synchronized (callbackMap) {
             callbackMap.put(getId().longValue(), this);
@@ -89,6 +91,7 @@ class FutureTaskCallback<T> extends NSObject {
     }
 
     static <T> void performOnMainThread(FutureTask<T> futureTask, boolean waitUntilDone) {
-        new FutureTaskCallback(futureTask).performSelectorOnMainThread(futureTaskCallbackSel, null, waitUntilDone);
+        FoundationUtil.MAIN_THREAD_HOPS.incrementAndGet();
+        ObjC.send(new FutureTaskCallback(futureTask).id.longValue(), performSelectorOnMainThreadSelId, futureTaskCallbackSelId, ObjC.NIL, waitUntilDone);
     }
 }
@@ -0,0 +1,97 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2020 dyorgio.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package dyorgio.runtime.macos.trayicon.fixer.jna.foundation;
+
+import com.sun.jna.NativeLong;
+
+/**
+ * NSMenuDelegate that runs a Runnable on menuNeedsUpdate:, before menu is
+ * displayed (always on main thread).
+ *
+ * @author dyorgio
+ */
+@SuppressWarnings("Convert2Lambda")
+public final class MenuDelegate extends NSObject {
+
+    private static final long menuDelegateClass = ObjC.runtime().allocateClassPair(NSObject.objectClass.longValue(), MenuDelegate.class.getSimpleName());
+    private static final long menuNeedsUpdateSelId = ObjC.selector("menuNeedsUpdate:");
+    private static final long setDelegateSelId = ObjC.selector("setDelegate:");
+    private static final ObjCMethod registerMenuNeedsUpdate;
+
+    static {
+        startNativeAppMainThread();
+        registerMenuNeedsUpdate = new ObjCMethod() {
+            @Override
+            public void invoke(long self, long selector, long arg) {
+                if (selector == menuNeedsUpdateSelId) {
+                    MenuDelegate delegate;
+
+                    synchronized (callbackMap) {
+                        delegate = callbackMap.get(self);
+                    }
+
+                    if (delegate != null) {
+                        delegate.runnable.run();
+                    }
+                }
+            }
+        };
+
+        if (!ObjC.runtime().addMethod(menuDelegateClass,
+                menuNeedsUpdateSelId, registerMenuNeedsUpdate, "v@:@")) {
+            throw new RuntimeException("Error initializing MenuDelegate as a objective C class");
+        }
+
+        ObjC.runtime().registerClassPair(menuDelegateClass);
+    }
+
+    private static final LongMap<MenuDelegate> callbackMap = new LongMap<MenuDelegate>();
+
+    private final Runnable runnable;
+
+    @SuppressWarnings("LeakingThisInConstructor")
+    public MenuDelegate(Runnable menuNeedsUpdate) {
+        super(new NativeLong(ObjC.runtime().createInstance(menuDelegateClass)));
+        this.runnable = menuNeedsUpdate;
+        synchronized (callbackMap) {
+            callbackMap.put(getId().longValue(), this);
+        }
+    }
+
+    @Override
+    public void release() {
+        synchronized (callbackMap) {
+            callbackMap.remove(getId().longValue());
+        }
+        super.release();
+    }
+
+    /**
+     * NSMenu doesn't retain its delegate, keep this instance referenced while
+     * menu is alive.
+     */
+    public void installOnNSMenu(NativeLong nsMenu) {
+        ObjC.send(FoundationUtil.idOf(nsMenu), setDelegateSelId, id.longValue());
+    }
+}
@@ -24,7 +24,6 @@
 package dyorgio.runtime.macos.trayicon.fixer.jna.foundation;
 
 import com.sun.jna.NativeLong;
-import com.sun.jna.Pointer;
 
 /**
  *
@@ -32,19 +31,27 @@ import com.sun.jna.Pointer;
  */
 public class NSDictionary extends NSObject {
 
-    private static final NativeLong dictionaryClass = Foundation.INSTANCE.objc_getClass("NSDictionary");
-    private static final Pointer dictionaryWithContentsOfFileSel = Foundation.INSTANCE.sel_registerName("dictionaryWithContentsOfFile:");
-    private static final Pointer objectForKeySel = Foundation.INSTANCE.sel_registerName("objectForKey:");
+    @ObjCClass("NSDictionary")
+    public interface Selectors {
+
+        @Selector(value = "dictionaryWithContentsOfFile:", classMethod = true)
+        NativeLong dictionaryWithContentsOfFile(NativeLong file);
+
+        @Selector("objectForKey:")
+        NativeLong objectForKey(NativeLong self, NativeLong key);
+    }
+
+    private static final Selectors SELECTORS = ObjCInvokers.get(Selectors.class);
 
     public NSDictionary(NativeLong id) {
         super(id);
     }
 
     public static NSDictionary dictionaryWithContentsOfFile(NSString file) {
-        return new NSDictionary(Foundation.INSTANCE.objc_msgSend(dictionaryClass, dictionaryWithContentsOfFileSel, file.id));
+        return new NSDictionary(SELECTORS.dictionaryWithContentsOfFile(file.id));
     }
 
     public NSObject objectForKey(NSObject key) {
-        return new NSString(FoundationUtil.invoke(id, objectForKeySel, key.id));
+        return new NSString(SELECTORS.objectForKey(id, key.id));
     }
 }
@@ -27,7 +27,6 @@ import com.sun.jna.NativeLong;
 import com.sun.jna.Pointer;
 import java.awt.Toolkit;
 import java.lang.reflect.InvocationTargetException;
-import javax.swing.SwingUtilities;
 
 /**
  *
@@ -35,17 +34,23 @@ import javax.swing.SwingUtilities;
  */
 public class NSObject {
 
-    static final NativeLong objectClass = Foundation.INSTANCE.objc_getClass("NSObject");
-    protected static final Pointer allocSel = Foundation.INSTANCE.sel_registerName("alloc");
-    protected static final Pointer initSel = Foundation.INSTANCE.sel_registerName("init");
-    protected static final Pointer releaseSel = Foundation.INSTANCE.sel_registerName("release");
-    protected static final Pointer performSelectorOnMainThread$withObject$waitUntilDoneSel
-            = Foundation.INSTANCE.sel_registerName("performSelectorOnMainThread:withObject:waitUntilDone:");
+    static final NativeLong objectClass = new NativeLong(ObjC.getClass("NSObject"));
+    protected static final long allocSelId = ObjC.selector("alloc");
+    protected static final long initSelId = ObjC.selector("init");
+    protected static final long releaseSelId = ObjC.selector("release");
+    static final long performSelectorOnMainThreadSelId = ObjC.selector("performSelectorOnMainThread:withObject:waitUntilDone:");
+    protected static final Pointer allocSel = new Pointer(allocSelId);
+    protected static final Pointer initSel = new Pointer(initSelId);
+    protected static final Pointer releaseSel = new Pointer(releaseSelId);
+    protected static final Pointer performSelectorOnMainThread$withObject$waitUntilDoneSel = new Pointer(performSelectorOnMainThreadSelId);
 
     final NativeLong id;
+    private final NativeReleaser releaser;
 
+    @SuppressWarnings("LeakingThisInConstructor")
     public NSObject(NativeLong id) {
         this.id = id;
+        this.releaser = new NativeReleaser(this, id);
     }
 
     public final NativeLong getId() {
@@ -53,20 +58,12 @@ public class NSObject {
     }
 
     public void release() {
-        Foundation.INSTANCE.objc_msgSend(id, releaseSel);
-    }
-
-    @Override
-    @SuppressWarnings("FinalizeDeclaration")
-    protected void finalize() throws Throwable {
-        release();
-        super.finalize();
+        releaser.release();
     }
 
     public void performSelectorOnMainThread(Pointer selector, NativeLong object, boolean waitUntilDone) {
-        Foundation.INSTANCE.objc_msgSend(id, //
-                NSObject.performSelectorOnMainThread$withObject$waitUntilDoneSel, //
-                selector, object, waitUntilDone);
+        ObjC.send(id.longValue(), performSelectorOnMainThreadSelId, //
+                Pointer.nativeValue(selector), FoundationUtil.idOf(object), waitUntilDone);
     }
 
     static volatile boolean initialized = false;
@@ -76,7 +73,7 @@ public class NSObject {
             synchronized (NSObject.objectClass) {
                 if (!initialized) {
                     try {
-                        SwingUtilities.invokeAndWait(new Runnable() {
+                        FoundationUtil.invokeAndWaitFromMainThread(new Runnable() {
                             @Override
                             public void run() {
                                 Toolkit.getDefaultToolkit();
@@ -24,8 +24,6 @@
 package dyorgio.runtime.macos.trayicon.fixer.jna.foundation;
 
 import com.sun.jna.NativeLong;
-import com.sun.jna.Pointer;
-import com.sun.jna.platform.mac.CoreFoundation;
 import java.nio.charset.Charset;
 
 /**
@@ -35,11 +33,26 @@ import java.nio.charset.Charset;
 public class NSString extends NSObject {
 
     public static final Charset UTF_16LE_CHARSET = Charset.forName("UTF-16LE");
+    private static final Charset UTF_8_CHARSET = Charset.forName("UTF-8");
 
-    private static final NativeLong stringCls = Foundation.INSTANCE.objc_getClass("NSString");
-    private static final Pointer stringSel = Foundation.INSTANCE.sel_registerName("string");
-    private static final Pointer initWithBytesLengthEncodingSel = Foundation.INSTANCE.sel_registerName("initWithBytes:length:encoding:");
+    @ObjCClass("NSString")
+    public interface Selectors {
+
+        @Selector(value = "alloc", classMethod = true)
+        NativeLong alloc();
+
+        @Selector("init")
+        NativeLong init(NativeLong self);
+
+        @Selector("initWithBytes:length:encoding:")
+        NativeLong initWithBytes(NativeLong self, byte[] bytes, int length, long encoding);
+    }
+
+    private static final Selectors SELECTORS = ObjCInvokers.get(Selectors.class);
     private static final long NSUTF16LittleEndianStringEncoding = 0x94000100;
+    private static final long NSUTF8StringEncoding = 4;
+    private static final long maximumLengthOfBytesUsingEncodingSel = ObjC.selector("maximumLengthOfBytesUsingEncoding:");
+    private static final long getCStringSel = ObjC.selector("getCString:maxLength:encoding:");
 
     public NSString(String string) {
         this(fromJavaString(string));
@@ -54,21 +67,26 @@ public class NSString extends NSObject {
         if (FoundationUtil.isNull(this)) {
             return null;
         }
-        CoreFoundation.CFStringRef cfString = new CoreFoundation.CFStringRef(new Pointer(id.longValue()));
-        try {
-            return CoreFoundation.INSTANCE.CFStringGetLength(cfString).intValue() > 0 ? cfString.stringValue() : "";
-        } finally {
-            cfString.release();
+        long stringId = id.longValue();
+        // NUL terminated
+        byte[] buffer = new byte[(int) ObjC.send(stringId, maximumLengthOfBytesUsingEncodingSel, NSUTF8StringEncoding) + 1];
+        if ((ObjC.send(stringId, getCStringSel, buffer, buffer.length, NSUTF8StringEncoding) & 0xFF) == 0) {
+            throw new IllegalStateException("Unable to read NSString contents");
+        }
+        int length = 0;
+        while (buffer[length] != 0) {
+            length++;
         }
+        return new String(buffer, 0, length, UTF_8_CHARSET);
     }
 
     private static NativeLong fromJavaString(String s) {
         if (s.isEmpty()) {
-            return Foundation.INSTANCE.objc_msgSend(stringCls, stringSel);
+            // retained like initWithBytes, released by finalize
+            return SELECTORS.init(SELECTORS.alloc());
         }
 
         byte[] utf16Bytes = s.getBytes(UTF_16LE_CHARSET);
-        return Foundation.INSTANCE.objc_msgSend(Foundation.INSTANCE.objc_msgSend(stringCls, allocSel),
-                initWithBytesLengthEncodingSel, utf16Bytes, utf16Bytes.length, NSUTF16LittleEndianStringEncoding);
+        return SELECTORS.initWithBytes(SELECTORS.alloc(), utf16Bytes, utf16Bytes.length, NSUTF16LittleEndianStringEncoding);
     }
 }
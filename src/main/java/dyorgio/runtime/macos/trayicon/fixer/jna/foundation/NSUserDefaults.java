@@ -24,7 +24,6 @@
 package dyorgio.runtime.macos.trayicon.fixer.jna.foundation;
 
 import com.sun.jna.NativeLong;
-import com.sun.jna.Pointer;
 
 /**
  *
@@ -32,19 +31,27 @@ import com.sun.jna.Pointer;
  */
 public class NSUserDefaults extends NSObject {
 
-    private static final NativeLong userDefaultsClass = Foundation.INSTANCE.objc_getClass("NSUserDefaults");
-    private static final Pointer standardUserDefaultsdSel = Foundation.INSTANCE.sel_registerName("standardUserDefaults");
-    private static final Pointer stringForKeySel = Foundation.INSTANCE.sel_registerName("stringForKey:");
+    @ObjCClass("NSUserDefaults")
+    public interface Selectors {
+
+        @Selector(value = "standardUserDefaults", classMethod = true)
+        NativeLong standardUserDefaults();
+
+        @Selector("stringForKey:")
+        NativeLong stringForKey(NativeLong self, NativeLong key);
+    }
+
+    private static final Selectors SELECTORS = ObjCInvokers.get(Selectors.class);
 
     public NSUserDefaults(NativeLong id) {
         super(id);
     }
 
     public static NSUserDefaults standard() {
-        return new NSUserDefaults(Foundation.INSTANCE.objc_msgSend(userDefaultsClass, standardUserDefaultsdSel));
+        return new NSUserDefaults(SELECTORS.standardUserDefaults());
     }
 
     public NSString stringForKey(NSString key) {
-        return new NSString(FoundationUtil.invoke(id, stringForKeySel, key.id));
+        return new NSString(SELECTORS.stringForKey(id, key.id));
     }
 }
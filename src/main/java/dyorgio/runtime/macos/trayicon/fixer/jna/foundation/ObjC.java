@@ -0,0 +1,142 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2020 dyorgio.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package dyorgio.runtime.macos.trayicon.fixer.jna.foundation;
+
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Allocation free counterpart of {@link FoundationUtil}, works with raw long
+ * object ids and selector handles registered once (usually on static
+ * fields), no NativeLong or Pointer is created per message send.<br>
+ * Runtime is chosen on first use, see {@link #FFM_PROPERTY}.
+ *
+ * @author dyorgio
+ */
+public final class ObjC {
+
+    public static final long NIL = 0;
+
+    /**
+     * Set to false to use JNA even when Panama FFM backend is available.
+     */
+    public static final String FFM_PROPERTY = "dyorgio.runtime.macos.trayicon.fixer.ffm";
+
+    private static final Logger LOGGER = Logger.getLogger(ObjC.class.getName());
+
+    private static volatile ObjCRuntime runtime;
+
+    private ObjC() {
+    }
+
+    public static ObjCRuntime runtime() {
+        ObjCRuntime current = runtime;
+        if (current == null) {
+            synchronized (ObjC.class) {
+                current = runtime;
+                if (current == null) {
+                    runtime = current = defaultRuntime();
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Panama FFM backend (JDK 22+, META-INF/versions/22 of multi-release jar)
+     * if available, JNA otherwise.
+     */
+    private static ObjCRuntime defaultRuntime() {
+        if (!"false".equalsIgnoreCase(System.getProperty(FFM_PROPERTY))) {
+            try {
+                return (ObjCRuntime) Class.forName("dyorgio.runtime.macos.trayicon.fixer.jna.foundation.FoundationFFM")
+                        .getField("INSTANCE").get(null);
+            } catch (ClassNotFoundException ignore) {
+                // older JDK or jar built without ffm profile
+            } catch (Throwable e) {
+                LOGGER.log(Level.FINE, "Panama FFM backend unavailable, using JNA", e);
+            }
+        }
+        return FoundationLong.INSTANCE;
+    }
+
+    /**
+     * Replaces runtime used by this class (alternative backends or fake
+     * runtimes on benchmarks), must be called before any selector/class is
+     * resolved.
+     */
+    public static synchronized void setRuntime(ObjCRuntime newRuntime) {
+        if (newRuntime == null) {
+            throw new IllegalArgumentException("Runtime cannot be null");
+        }
+        runtime = newRuntime;
+    }
+
+    public static long selector(String selectorName) {
+        return runtime().registerSelector(selectorName);
+    }
+
+    public static long getClass(String className) {
+        return runtime().getClass(className);
+    }
+
+    public static boolean isNil(long id) {
+        return id == NIL;
+    }
+
+    public static long send(long id, long selector) {
+        return runtime().msgSend(id, selector);
+    }
+
+    public static long send(long id, long selector, long arg) {
+        return runtime().msgSend(id, selector, arg);
+    }
+
+    public static long send(long id, long selector, boolean arg) {
+        return runtime().msgSend(id, selector, arg);
+    }
+
+    public static long send(long id, long selector, double arg) {
+        return runtime().msgSend(id, selector, arg);
+    }
+
+    public static long send(long id, long selector, long arg, long arg2) {
+        return runtime().msgSend(id, selector, arg, arg2);
+    }
+
+    public static long send(long id, long selector, long arg, long arg2, boolean arg3) {
+        return runtime().msgSend(id, selector, arg, arg2, arg3);
+    }
+
+    public static long send(long id, long selector, byte[] bytes, long arg, long arg2) {
+        return runtime().msgSend(id, selector, bytes, arg, arg2);
+    }
+
+    /**
+     * @return BOOL result of a message send.
+     */
+    public static boolean sendBool(long id, long selector) {
+        return (runtime().msgSend(id, selector) & 0xFF) != 0;
+    }
+}
@@ -0,0 +1,247 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2020 dyorgio.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package dyorgio.runtime.macos.trayicon.fixer.jna.foundation;
+
+import com.sun.jna.NativeLong;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import net.bytebuddy.ByteBuddy;
+import net.bytebuddy.ClassFileVersion;
+import net.bytebuddy.dynamic.DynamicType;
+import net.bytebuddy.dynamic.loading.ClassLoadingStrategy;
+import net.bytebuddy.implementation.MethodCall;
+import net.bytebuddy.implementation.bytecode.assign.Assigner;
+import net.bytebuddy.matcher.ElementMatchers;
+
+/**
+ * Generates (ByteBuddy) invoker classes of interfaces annotated with
+ * {@link ObjCClass} and {@link Selector}.<br>
+ * Each generated method calls {@link Sends} with a selector resolved at
+ * generation time, which sends through {@link ObjC#runtime()} (same path of
+ * long handle call sites), so no proxy, reflection or selector lookup is
+ * involved on calls.<br>
+ * Supported return types are NativeLong and void, parameters must match a
+ * {@link Sends} overload (after receiver and selector).
+ *
+ * @author dyorgio
+ */
+@SuppressWarnings("Convert2Lambda")
+public final class ObjCInvokers {
+
+    private static final Logger LOGGER = Logger.getLogger(ObjCInvokers.class.getName());
+    private static final Map<Class<?>, Object> INVOKERS = new HashMap<Class<?>, Object>();
+
+    private ObjCInvokers() {
+    }
+
+    /**
+     * @return cached invoker of interface, falls back to a (slower)
+     * reflective proxy over {@link Sends} if class cannot be generated.
+     * @throws IllegalArgumentException if interface is not valid.
+     */
+    public static synchronized <T> T get(Class<T> type) {
+        Object invoker = INVOKERS.get(type);
+        if (invoker == null) {
+            invoker = create(type);
+            INVOKERS.put(type, invoker);
+        }
+        return type.cast(invoker);
+    }
+
+    static <T> T create(Class<T> type) {
+        // invalid interfaces fail here, before generation
+        Map<Method, Long> selectors = resolveSelectors(type);
+        NativeLong classId = classOf(type, selectors);
+        try {
+            return generate(type, selectors, classId);
+        } catch (Throwable e) {
+            // any ByteBuddy/linkage failure, including IllegalArgumentException
+            LOGGER.log(Level.WARNING, "Unable to generate invoker of " + type.getName() + ", using proxy instead", e);
+            return proxy(type, selectors, classId);
+        }
+    }
+
+    private static Map<Method, Long> resolveSelectors(Class<?> type) {
+        if (!type.isInterface()) {
+            throw new IllegalArgumentException(type.getName() + " is not an interface");
+        }
+        Map<Method, Long> selectors = new HashMap<Method, Long>();
+        for (Method method : type.getMethods()) {
+            Selector selector = method.getAnnotation(Selector.class);
+            if (selector == null) {
+                throw new IllegalArgumentException("Method " + method + " has no @Selector");
+            }
+            if (method.getReturnType() != NativeLong.class && method.getReturnType() != void.class) {
+                throw new IllegalArgumentException("Method " + method + " must return NativeLong or void");
+            }
+            if (!selector.classMethod() && (method.getParameterTypes().length == 0 || method.getParameterTypes()[0] != NativeLong.class)) {
+                throw new IllegalArgumentException("Instance method " + method + " must receive NativeLong receiver first");
+            }
+            target(method, selector.classMethod());
+            selectors.put(method, ObjC.selector(selector.value()));
+        }
+        return selectors;
+    }
+
+    private static NativeLong classOf(Class<?> type, Map<Method, Long> selectors) {
+        ObjCClass objCClass = type.getAnnotation(ObjCClass.class);
+        if (objCClass == null) {
+            for (Method method : selectors.keySet()) {
+                if (method.getAnnotation(Selector.class).classMethod()) {
+                    throw new IllegalArgumentException(type.getName() + " has class methods but no @ObjCClass");
+                }
+            }
+            return null;
+        }
+        long classId = ObjC.getClass(objCClass.value());
+        if (ObjC.isNil(classId)) {
+            throw new IllegalArgumentException("Objective C class not found: " + objCClass.value());
+        }
+        return new NativeLong(classId);
+    }
+
+    /**
+     * {@link Sends} overload matching method parameters.
+     */
+    private static Method target(Method method, boolean classMethod) {
+        Class<?>[] parameters = method.getParameterTypes();
+        int offset = classMethod ? 0 : 1;
+        Class<?>[] targetParameters = new Class<?>[parameters.length - offset + 2];
+        targetParameters[0] = NativeLong.class;
+        targetParameters[1] = long.class;
+        System.arraycopy(parameters, offset, targetParameters, 2, parameters.length - offset);
+        try {
+            return Sends.class.getMethod("send", targetParameters);
+        } catch (NoSuchMethodException e) {
+            throw new IllegalArgumentException("Unsupported parameters of " + method);
+        }
+    }
+
+    private static <T> T generate(Class<T> type, Map<Method, Long> selectors, NativeLong classId) throws Exception {
+        DynamicType.Builder<T> builder = new ByteBuddy(ClassFileVersion.JAVA_V6)//
+                .subclass(type)//
+                .name(type.getName() + "$Invoker");
+        for (Map.Entry<Method, Long> entry : selectors.entrySet()) {
+            Method method = entry.getKey();
+            boolean classMethod = method.getAnnotation(Selector.class).classMethod();
+            int parameters = method.getParameterTypes().length;
+            MethodCall call = MethodCall.invoke(target(method, classMethod));
+            if (classMethod) {
+                call = call.with(classId).with(entry.getValue());
+                for (int i = 0; i < parameters; i++) {
+                    call = call.withArgument(i);
+                }
+            } else {
+                call = call.withArgument(0).with(entry.getValue());
+                for (int i = 1; i < parameters; i++) {
+                    call = call.withArgument(i);
+                }
+            }
+            builder = builder.method(ElementMatchers.is(method)).intercept(call.withAssigner(Assigner.DEFAULT, Assigner.Typing.STATIC));
+        }
+        Class<? extends T> invokerClass = builder.make()//
+                .load(type.getClassLoader(), ClassLoadingStrategy.Default.WRAPPER)//
+                .getLoaded();
+        return invokerClass.getDeclaredConstructor().newInstance();
+    }
+
+    private static <T> T proxy(Class<T> type, Map<Method, Long> selectors, final NativeLong classId) {
+        final Map<Method, Object[]> calls = new HashMap<Method, Object[]>();
+        for (Map.Entry<Method, Long> entry : selectors.entrySet()) {
+            Method method = entry.getKey();
+            boolean classMethod = method.getAnnotation(Selector.class).classMethod();
+            calls.put(method, new Object[]{target(method, classMethod), entry.getValue(), classMethod});
+        }
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                Object[] call = calls.get(method);
+                if (call == null) {
+                    // Object methods
+                    return method.invoke(this, args);
+                }
+                boolean classMethod = (Boolean) call[2];
+                int length = args == null ? 0 : args.length;
+                Object[] targetArgs = new Object[length + (classMethod ? 2 : 1)];
+                if (classMethod) {
+                    targetArgs[0] = classId;
+                    targetArgs[1] = call[1];
+                    if (length > 0) {
+                        System.arraycopy(args, 0, targetArgs, 2, length);
+                    }
+                } else {
+                    targetArgs[0] = args[0];
+                    targetArgs[1] = call[1];
+                    System.arraycopy(args, 1, targetArgs, 2, length - 1);
+                }
+                try {
+                    Object result = ((Method) call[0]).invoke(null, targetArgs);
+                    return method.getReturnType() == void.class ? null : result;
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+            }
+        }));
+    }
+
+    /**
+     * Message sends called by generated invokers (public, invokers are
+     * loaded by another class loader), not intended for direct use.
+     */
+    public static final class Sends {
+
+        private Sends() {
+        }
+
+        public static NativeLong send(NativeLong receiver, long selector) {
+            return new NativeLong(ObjC.runtime().msgSend(FoundationUtil.idOf(receiver), selector));
+        }
+
+        public static NativeLong send(NativeLong receiver, long selector, NativeLong arg) {
+            return new NativeLong(ObjC.runtime().msgSend(FoundationUtil.idOf(receiver), selector, FoundationUtil.idOf(arg)));
+        }
+
+        public static NativeLong send(NativeLong receiver, long selector, boolean arg) {
+            return new NativeLong(ObjC.runtime().msgSend(FoundationUtil.idOf(receiver), selector, arg));
+        }
+
+        public static NativeLong send(NativeLong receiver, long selector, double arg) {
+            return new NativeLong(ObjC.runtime().msgSend(FoundationUtil.idOf(receiver), selector, arg));
+        }
+
+        public static NativeLong send(NativeLong receiver, long selector, NativeLong arg, long arg2) {
+            return new NativeLong(ObjC.runtime().msgSend(FoundationUtil.idOf(receiver), selector, FoundationUtil.idOf(arg), arg2));
+        }
+
+        public static NativeLong send(NativeLong receiver, long selector, byte[] bytes, int length, long arg) {
+            return new NativeLong(ObjC.runtime().msgSend(FoundationUtil.idOf(receiver), selector, bytes, length, arg));
+        }
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2020 dyorgio.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package dyorgio.runtime.macos.trayicon.fixer.jna.foundation;
+
+/**
+ * Objective-C runtime operations over raw object ids and selector handles,
+ * no per call allocation. Ids and handles are plain native addresses, zero
+ * means nil.
+ *
+ * @author dyorgio
+ * @see ObjC
+ */
+public interface ObjCRuntime {
+
+    long getClass(String className);
+
+    long registerSelector(String selectorName);
+
+    long allocateClassPair(long superClass, String name);
+
+    void registerClassPair(long clazz);
+
+    long createInstance(long clazz);
+
+    /**
+     * Adds a method implementation, method must be kept referenced while
+     * class is in use.
+     */
+    boolean addMethod(long clazz, long selector, ObjCMethod method, String types);
+
+    /**
+     * @return instance variable handle of class, nil if not found.
+     */
+    long getInstanceVariable(long clazz, String name);
+
+    /**
+     * @return object id stored on instance variable.
+     */
+    long getIvar(long object, long ivar);
+
+    long msgSend(long receiver, long selector);
+
+    long msgSend(long receiver, long selector, long arg);
+
+    long msgSend(long receiver, long selector, boolean arg);
+
+    long msgSend(long receiver, long selector, double arg);
+
+    long msgSend(long receiver, long selector, long arg, long arg2);
+
+    long msgSend(long receiver, long selector, long arg, long arg2, boolean arg3);
+
+    /**
+     * Sends bytes as a native buffer pointer (initWithBytes:length:encoding:
+     * like methods), buffer is copied back to array after call.
+     */
+    long msgSend(long receiver, long selector, byte[] bytes, long arg, long arg2);
+}
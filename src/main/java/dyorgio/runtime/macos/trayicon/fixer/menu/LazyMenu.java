@@ -0,0 +1,116 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2020 dyorgio.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package dyorgio.runtime.macos.trayicon.fixer.menu;
+
+import dyorgio.runtime.macos.trayicon.fixer.jna.appkit.NSMenu;
+import dyorgio.runtime.macos.trayicon.fixer.jna.foundation.ActionCallback;
+import dyorgio.runtime.macos.trayicon.fixer.jna.foundation.MenuDelegate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Native NSMenu filled on demand by a {@link MenuPopulator}.<br>
+ * Items are created only when menu is opened (on menuNeedsUpdate:), submenus
+ * are lazy too, so building cost depends only on menus user actually opens.
+ *
+ * @author dyorgio
+ */
+@SuppressWarnings("Convert2Lambda")
+public final class LazyMenu implements NativeMenu {
+
+    private final NSMenu nsMenu;
+    private final MenuPopulator populator;
+    private final MenuDelegate delegate;
+    final List<ActionCallback> callbacks = new ArrayList<ActionCallback>();
+    final List<LazyMenu> submenus = new ArrayList<LazyMenu>();
+    private volatile boolean populated;
+    private volatile boolean released;
+
+    public LazyMenu(MenuPopulator populator) {
+        this("", populator);
+    }
+
+    /**
+     * Can be called from any thread, native menu is created on main thread
+     * (blocks until it runs).
+     */
+    public LazyMenu(String title, MenuPopulator populator) {
+        this.populator = populator;
+        this.delegate = new MenuDelegate(new Runnable() {
+            @Override
+            public void run() {
+                menuNeedsUpdate();
+            }
+        });
+        this.nsMenu = NativeMenus.create(title, delegate);
+    }
+
+    @Override
+    public NSMenu getNSMenu() {
+        return nsMenu;
+    }
+
+    public boolean isPopulated() {
+        return populated;
+    }
+
+    /**
+     * Menu will be populated again on next open, can be called from any
+     * thread.
+     */
+    public void invalidate() {
+        populated = false;
+    }
+
+    private void menuNeedsUpdate() {
+        if (populated || released) {
+            return;
+        }
+        clear();
+        populator.populate(new MenuBuilder(this, nsMenu));
+        populated = true;
+    }
+
+    private void clear() {
+        nsMenu.removeAllItems();
+        for (ActionCallback callback : callbacks) {
+            callback.release();
+        }
+        callbacks.clear();
+        for (LazyMenu submenu : submenus) {
+            submenu.release();
+        }
+        submenus.clear();
+    }
+
+    @Override
+    public void release() {
+        if (released) {
+            return;
+        }
+        released = true;
+        clear();
+        delegate.release();
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2020 dyorgio.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package dyorgio.runtime.macos.trayicon.fixer.menu;
+
+import dyorgio.runtime.macos.trayicon.fixer.jna.appkit.NSMenu;
+import dyorgio.runtime.macos.trayicon.fixer.jna.appkit.NSMenuItem;
+import dyorgio.runtime.macos.trayicon.fixer.jna.foundation.ActionCallback;
+import javax.swing.SwingUtilities;
+
+/**
+ * Adds native items to a {@link LazyMenu} being populated.<br>
+ * Only valid inside {@link MenuPopulator#populate(dyorgio.runtime.macos.trayicon.fixer.menu.MenuBuilder)}.
+ *
+ * @author dyorgio
+ */
+@SuppressWarnings("Convert2Lambda")
+public final class MenuBuilder {
+
+    private final LazyMenu menu;
+    private final NSMenu nsMenu;
+
+    MenuBuilder(LazyMenu menu, NSMenu nsMenu) {
+        this.menu = menu;
+        this.nsMenu = nsMenu;
+    }
+
+    /**
+     * @param action runs on EDT when item is clicked.
+     */
+    public MenuBuilder addItem(String title, final Runnable action) {
+        NSMenuItem item = new NSMenuItem(title);
+        ActionCallback callback = new ActionCallback(new Runnable() {
+            @Override
+            public void run() {
+                SwingUtilities.invokeLater(action);
+            }
+        });
+        item.setAction(callback);
+        menu.callbacks.add(callback);
+        nsMenu.addItem(item);
+        return this;
+    }
+
+    public MenuBuilder addDisabledItem(String title) {
+        NSMenuItem item = new NSMenuItem(title);
+        item.setEnabled(false);
+        nsMenu.addItem(item);
+        return this;
+    }
+
+    public MenuBuilder addSeparator() {
+        nsMenu.addItem(NSMenuItem.separatorItem());
+        return this;
+    }
+
+    /**
+     * Submenu is populated only when user opens it.
+     */
+    public MenuBuilder addSubmenu(String title, MenuPopulator populator) {
+        LazyMenu submenu = new LazyMenu(title, populator);
+        NSMenuItem item = new NSMenuItem(title);
+        item.setSubmenu(submenu.getNSMenu());
+        menu.submenus.add(submenu);
+        nsMenu.addItem(item);
+        return this;
+    }
+
+    public int getItemCount() {
+        return nsMenu.numberOfItems();
+    }
+}
@@ -0,0 +1,241 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2020 dyorgio.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package dyorgio.runtime.macos.trayicon.fixer.menu;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Minimal set of mutations to turn a menu item tree into another, matching
+ * items by key.<br>
+ * Removed items are removed, new items inserted, items whose relative order
+ * changed are moved (only the ones outside longest preserved sequence),
+ * remaining ones are only retitled/enabled when needed.
+ *
+ * @author dyorgio
+ */
+public final class MenuDiff {
+
+    private int inserts;
+    private int removes;
+    private int moves;
+    private int retitles;
+    private int enables;
+    private long nanos;
+
+    private MenuDiff() {
+    }
+
+    /**
+     * Applies differences between item trees on menu through mutator.
+     *
+     * @throws IllegalArgumentException if keys are duplicated on same level.
+     */
+    public static <M> MenuDiff apply(List<MenuItemModel> oldItems, List<MenuItemModel> newItems, M menu, MenuMutator<M> mutator) {
+        MenuDiff diff = new MenuDiff();
+        long start = System.nanoTime();
+        // fails before any mutation
+        checkKeys(newItems);
+        diff.diff(oldItems, newItems, menu, mutator);
+        diff.nanos = System.nanoTime() - start;
+        return diff;
+    }
+
+    private static void checkKeys(List<MenuItemModel> items) {
+        Set<String> keys = new HashSet<String>(items.size() * 2);
+        for (MenuItemModel item : items) {
+            if (!keys.add(item.getKey())) {
+                throw new IllegalArgumentException("Duplicated menu item key: " + item.getKey());
+            }
+            if (item.isSubmenu()) {
+                checkKeys(item.getChildren());
+            }
+        }
+    }
+
+    private <M> void diff(List<MenuItemModel> oldItems, List<MenuItemModel> newItems, M menu, MenuMutator<M> mutator) {
+        Map<String, Integer> newIndexes = new HashMap<String, Integer>(newItems.size() * 2);
+        for (int i = 0; i < newItems.size(); i++) {
+            newIndexes.put(newItems.get(i).getKey(), i);
+        }
+
+        // removes missing items (or items that changed kind) from end to start
+        List<MenuItemModel> current = new ArrayList<MenuItemModel>(oldItems);
+        for (int i = current.size() - 1; i >= 0; i--) {
+            MenuItemModel item = current.get(i);
+            Integer index = newIndexes.get(item.getKey());
+            if (index == null || !item.isSameKind(newItems.get(index))) {
+                mutator.removeItem(menu, i);
+                current.remove(i);
+                removes++;
+            }
+        }
+
+        // retained items in longest increasing sequence keep their place
+        int[] sequence = new int[current.size()];
+        List<String> order = new ArrayList<String>(newItems.size());
+        Map<String, MenuItemModel> retained = new HashMap<String, MenuItemModel>(current.size() * 2);
+        for (int i = 0; i < sequence.length; i++) {
+            MenuItemModel item = current.get(i);
+            sequence[i] = newIndexes.get(item.getKey());
+            order.add(item.getKey());
+            retained.put(item.getKey(), item);
+        }
+        Set<String> stable = new HashSet<String>(sequence.length * 2);
+        for (int i : longestIncreasingSubsequence(sequence)) {
+            stable.add(order.get(i));
+        }
+
+        // places each item right after its predecessor
+        int previous = -1;
+        for (int i = 0; i < newItems.size(); i++) {
+            MenuItemModel item = newItems.get(i);
+            String key = item.getKey();
+            int target = previous + 1;
+            MenuItemModel old = retained.get(key);
+            if (old == null) {
+                M submenu = mutator.insertItem(menu, target, item);
+                order.add(target, key);
+                inserts++;
+                if (item.isSubmenu()) {
+                    diff(Collections.<MenuItemModel>emptyList(), item.getChildren(), submenu, mutator);
+                }
+                previous = target;
+                continue;
+            }
+
+            // usually item is already in place
+            int index = target < order.size() && key.equals(order.get(target)) ? target : order.indexOf(key);
+            if (!stable.contains(key)) {
+                int to = index < target ? target - 1 : target;
+                if (index != to) {
+                    mutator.moveItem(menu, index, to);
+                    order.remove(index);
+                    order.add(to, key);
+                    moves++;
+                    index = to;
+                }
+            }
+            update(old, item, menu, index, mutator);
+            previous = index;
+        }
+    }
+
+    private <M> void update(MenuItemModel old, MenuItemModel item, M menu, int index, MenuMutator<M> mutator) {
+        // models are immutable, reused instances need nothing
+        if (old == item || item.isSeparator()) {
+            return;
+        }
+        if (!old.getTitle().equals(item.getTitle())) {
+            mutator.setTitle(menu, index, item.getTitle());
+            retitles++;
+        }
+        if (old.isEnabled() != item.isEnabled()) {
+            mutator.setEnabled(menu, index, item.isEnabled());
+            enables++;
+        }
+        if (item.isSubmenu()) {
+            diff(old.getChildren(), item.getChildren(), mutator.getSubmenu(menu, index), mutator);
+        } else if (old.getAction() != item.getAction()) {
+            mutator.setAction(menu, index, item.getAction());
+        }
+    }
+
+    /**
+     * @return positions (ascending) of one longest strictly increasing
+     * subsequence.
+     */
+    static int[] longestIncreasingSubsequence(int[] values) {
+        int[] tails = new int[values.length];
+        int[] previous = new int[values.length];
+        int length = 0;
+        for (int i = 0; i < values.length; i++) {
+            int low = 0;
+            int high = length;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (values[tails[middle]] < values[i]) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            previous[i] = low > 0 ? tails[low - 1] : -1;
+            tails[low] = i;
+            if (low == length) {
+                length++;
+            }
+        }
+        int[] result = new int[length];
+        for (int i = length - 1, k = length > 0 ? tails[length - 1] : -1; i >= 0; i--, k = previous[k]) {
+            result[i] = k;
+        }
+        return result;
+    }
+
+    public int getInserts() {
+        return inserts;
+    }
+
+    public int getRemoves() {
+        return removes;
+    }
+
+    public int getMoves() {
+        return moves;
+    }
+
+    public int getRetitles() {
+        return retitles;
+    }
+
+    public int getEnables() {
+        return enables;
+    }
+
+    /**
+     * @return total native mutations applied.
+     */
+    public int getMutationCount() {
+        return inserts + removes + moves + retitles + enables;
+    }
+
+    /**
+     * @return time spent diffing and applying mutations.
+     */
+    public long getNanos() {
+        return nanos;
+    }
+
+    @Override
+    public String toString() {
+        return "MenuDiff{inserts=" + inserts + ", removes=" + removes + ", moves=" + moves + ", retitles=" + retitles//
+                + ", enables=" + enables + ", nanos=" + nanos + '}';
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2020 dyorgio.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package dyorgio.runtime.macos.trayicon.fixer.menu;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Immutable menu item description used by {@link ModelMenu}, identified by
+ * key between model versions (keys must be unique on same menu level).
+ *
+ * @author dyorgio
+ */
+public final class MenuItemModel {
+
+    private final String key;
+    private final String title;
+    private final boolean enabled;
+    private final boolean separator;
+    private final Runnable action;
+    private final List<MenuItemModel> children;
+
+    private MenuItemModel(String key, String title, boolean enabled, boolean separator, Runnable action, List<MenuItemModel> children) {
+        if (key == null) {
+            throw new IllegalArgumentException("Key cannot be null");
+        }
+        this.key = key;
+        this.title = title == null ? "" : title;
+        this.enabled = enabled;
+        this.separator = separator;
+        this.action = action;
+        this.children = children;
+    }
+
+    /**
+     * @param action runs on EDT when item is clicked, can be null.
+     */
+    public static MenuItemModel item(String key, String title, Runnable action) {
+        return new MenuItemModel(key, title, true, false, action, null);
+    }
+
+    public static MenuItemModel separator(String key) {
+        return new MenuItemModel(key, null, true, true, null, null);
+    }
+
+    public static MenuItemModel submenu(String key, String title, MenuItemModel... children) {
+        return submenu(key, title, Arrays.asList(children));
+    }
+
+    public static MenuItemModel submenu(String key, String title, List<MenuItemModel> children) {
+        return new MenuItemModel(key, title, true, false, null, Collections.unmodifiableList(new ArrayList<MenuItemModel>(children)));
+    }
+
+    public MenuItemModel withEnabled(boolean enabled) {
+        return new MenuItemModel(key, title, enabled, separator, action, children);
+    }
+
+    public MenuItemModel withTitle(String title) {
+        return new MenuItemModel(key, title, enabled, separator, action, children);
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public boolean isSeparator() {
+        return separator;
+    }
+
+    public boolean isSubmenu() {
+        return children != null;
+    }
+
+    public Runnable getAction() {
+        return action;
+    }
+
+    /**
+     * @return submenu items or null if this item isn't a submenu.
+     */
+    public List<MenuItemModel> getChildren() {
+        return children;
+    }
+
+    /**
+     * Same kind of native item (separator, submenu or action item).
+     */
+    boolean isSameKind(MenuItemModel other) {
+        return separator == other.separator && isSubmenu() == other.isSubmenu();
+    }
+
+    @Override
+    public String toString() {
+        return separator ? "---(" + key + ")" : key + ":" + title + (enabled ? "" : " (disabled)") + (children == null ? "" : " " + children);
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2020 dyorgio.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package dyorgio.runtime.macos.trayicon.fixer.menu;
+
+/**
+ * Native side of a {@link MenuDiff}, each method (except setAction) is one
+ * native mutation.
+ *
+ * @param <M> menu handle type.
+ * @author dyorgio
+ */
+public interface MenuMutator<M> {
+
+    /**
+     * Creates item at index.
+     *
+     * @return new empty submenu handle if item is a submenu, otherwise null.
+     */
+    M insertItem(M menu, int index, MenuItemModel item);
+
+    void removeItem(M menu, int index);
+
+    void moveItem(M menu, int from, int to);
+
+    void setTitle(M menu, int index, String title);
+
+    void setEnabled(M menu, int index, boolean enabled);
+
+    /**
+     * Replaces Java action of item, no native call is expected.
+     */
+    void setAction(M menu, int index, Runnable action);
+
+    M getSubmenu(M menu, int index);
+}
@@ -0,0 +1,217 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2020 dyorgio.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package dyorgio.runtime.macos.trayicon.fixer.menu;
+
+import dyorgio.runtime.macos.trayicon.fixer.jna.appkit.NSMenu;
+import dyorgio.runtime.macos.trayicon.fixer.jna.appkit.NSMenuItem;
+import dyorgio.runtime.macos.trayicon.fixer.jna.foundation.ActionCallback;
+import dyorgio.runtime.macos.trayicon.fixer.jna.foundation.FoundationUtil;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import javax.swing.SwingUtilities;
+
+/**
+ * Native menu driven by a {@link MenuItemModel} tree, each update sends only
+ * the native mutations computed by {@link MenuDiff}, all of them on a single
+ * main thread call.
+ *
+ * @author dyorgio
+ */
+@SuppressWarnings("Convert2Lambda")
+public final class ModelMenu implements NativeMenu {
+
+    private static final MenuMutator<Node> MUTATOR = new NSMenuMutator();
+
+    private final Node root;
+    private List<MenuItemModel> items = Collections.emptyList();
+    private boolean released;
+
+    /**
+     * Can be called from any thread, native menu is created on main thread
+     * (blocks until it runs).
+     */
+    public ModelMenu() {
+        this.root = new Node(NativeMenus.create("", null));
+    }
+
+    /**
+     * Updates native menu to match items, blocks until main thread applies
+     * mutations.
+     */
+    public MenuDiff update(final List<MenuItemModel> newItems) throws InterruptedException, ExecutionException {
+        final List<MenuItemModel> copy = Collections.unmodifiableList(new ArrayList<MenuItemModel>(newItems));
+        return FoundationUtil.callOnMainThreadAndWait(new Callable<MenuDiff>() {
+            @Override
+            public MenuDiff call() {
+                synchronized (ModelMenu.this) {
+                    if (released) {
+                        throw new IllegalStateException("Menu was released");
+                    }
+                    MenuDiff diff = MenuDiff.apply(items, copy, root, MUTATOR);
+                    items = copy;
+                    return diff;
+                }
+            }
+        });
+    }
+
+    public synchronized List<MenuItemModel> getItems() {
+        return items;
+    }
+
+    @Override
+    public NSMenu getNSMenu() {
+        return root.menu;
+    }
+
+    @Override
+    public synchronized void release() {
+        if (!released) {
+            released = true;
+            root.release();
+        }
+    }
+
+    static final class Node {
+
+        final NSMenu menu;
+        final List<Entry> entries = new ArrayList<Entry>();
+
+        Node(NSMenu menu) {
+            this.menu = menu;
+        }
+
+        void release() {
+            for (Entry entry : entries) {
+                entry.release();
+            }
+            entries.clear();
+        }
+    }
+
+    static final class Entry {
+
+        final NSMenuItem item;
+        final ActionCallback callback;
+        final Node submenu;
+        volatile Runnable action;
+
+        Entry(NSMenuItem item, ActionCallback callback, Node submenu, Runnable action) {
+            this.item = item;
+            this.callback = callback;
+            this.submenu = submenu;
+            this.action = action;
+        }
+
+        void release() {
+            if (callback != null) {
+                callback.release();
+            }
+            if (submenu != null) {
+                submenu.release();
+            }
+        }
+    }
+
+    // only used inside update, on main thread
+    private static final class NSMenuMutator implements MenuMutator<Node> {
+
+        @Override
+        public Node insertItem(Node menu, int index, MenuItemModel model) {
+            NSMenuItem item;
+            ActionCallback callback = null;
+            Node submenu = null;
+            if (model.isSeparator()) {
+                item = NSMenuItem.separatorItem();
+            } else {
+                item = new NSMenuItem(model.getTitle());
+                if (!model.isEnabled()) {
+                    item.setEnabled(false);
+                }
+                if (model.isSubmenu()) {
+                    submenu = new Node(new NSMenu(model.getTitle()));
+                    item.setSubmenu(submenu.menu);
+                }
+            }
+            final Entry entry;
+            if (model.isSeparator() || model.isSubmenu()) {
+                entry = new Entry(item, null, submenu, null);
+            } else {
+                final Entry[] holder = new Entry[1];
+                callback = new ActionCallback(new Runnable() {
+                    @Override
+                    public void run() {
+                        Runnable action = holder[0].action;
+                        if (action != null) {
+                            SwingUtilities.invokeLater(action);
+                        }
+                    }
+                });
+                item.setAction(callback);
+                entry = holder[0] = new Entry(item, callback, null, model.getAction());
+            }
+            menu.menu.insertItem(item, index);
+            menu.entries.add(index, entry);
+            return submenu;
+        }
+
+        @Override
+        public void removeItem(Node menu, int index) {
+            menu.menu.removeItemAtIndex(index);
+            menu.entries.remove(index).release();
+        }
+
+        @Override
+        public void moveItem(Node menu, int from, int to) {
+            Entry entry = menu.entries.remove(from);
+            // our wrapper keeps item retained while it is out of menu
+            menu.menu.removeItemAtIndex(from);
+            menu.menu.insertItem(entry.item, to);
+            menu.entries.add(to, entry);
+        }
+
+        @Override
+        public void setTitle(Node menu, int index, String title) {
+            menu.entries.get(index).item.setTitle(title);
+        }
+
+        @Override
+        public void setEnabled(Node menu, int index, boolean enabled) {
+            menu.entries.get(index).item.setEnabled(enabled);
+        }
+
+        @Override
+        public void setAction(Node menu, int index, Runnable action) {
+            menu.entries.get(index).action = action;
+        }
+
+        @Override
+        public Node getSubmenu(Node menu, int index) {
+            return menu.entries.get(index).submenu;
+        }
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2020 dyorgio.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package dyorgio.runtime.macos.trayicon.fixer.menu;
+
+import dyorgio.runtime.macos.trayicon.fixer.jna.appkit.NSMenu;
+import dyorgio.runtime.macos.trayicon.fixer.jna.foundation.FoundationUtil;
+import dyorgio.runtime.macos.trayicon.fixer.jna.foundation.MenuDelegate;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Creation of root NSMenus on main thread, so menus can be constructed from
+ * any thread.
+ *
+ * @author dyorgio
+ */
+@SuppressWarnings("Convert2Lambda")
+final class NativeMenus {
+
+    private NativeMenus() {
+    }
+
+    /**
+     * Creates menu (and installs delegate if not null) on main thread,
+     * blocking until it runs.<br>
+     * On failure delegate is released and an unchecked exception is thrown.
+     */
+    static NSMenu create(final String title, final MenuDelegate delegate) {
+        try {
+            return FoundationUtil.callOnMainThreadAndWait(new Callable<NSMenu>() {
+                @Override
+                public NSMenu call() {
+                    NSMenu menu = new NSMenu(title);
+                    if (delegate != null) {
+                        delegate.installOnNSMenu(menu.getId());
+                    }
+                    return menu;
+                }
+            });
+        } catch (InterruptedException e) {
+            release(delegate);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while creating menu", e);
+        } catch (ExecutionException e) {
+            release(delegate);
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException("Unable to create menu", cause);
+        } catch (RuntimeException e) {
+            // main thread timeout (CancellationException)
+            release(delegate);
+            throw e;
+        }
+    }
+
+    private static void release(MenuDelegate delegate) {
+        if (delegate != null) {
+            delegate.release();
+        }
+    }
+}
@@ -0,0 +1,278 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2020 dyorgio.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package dyorgio.runtime.macos.trayicon.fixer.jna.foundation;
+
+import static java.lang.foreign.ValueLayout.ADDRESS;
+import static java.lang.foreign.ValueLayout.JAVA_BOOLEAN;
+import static java.lang.foreign.ValueLayout.JAVA_BYTE;
+import static java.lang.foreign.ValueLayout.JAVA_DOUBLE;
+import static java.lang.foreign.ValueLayout.JAVA_LONG;
+import java.lang.foreign.Arena;
+import java.lang.foreign.FunctionDescriptor;
+import java.lang.foreign.Linker;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.SymbolLookup;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.nio.charset.StandardCharsets;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.codehaus.mojo.animal_sniffer.IgnoreJRERequirement;
+
+/**
+ * Panama FFM (java.lang.foreign) Objective-C runtime, JDK 22+ only
+ * (META-INF/versions/22). Message sends are static final downcall handles
+ * with primitive signatures (no marshalling), method implementations are
+ * upcall stubs.<br>
+ * Chosen automatically by {@link ObjC}, JNA ({@link FoundationLong}) is the
+ * fallback. Every library message send, class/ivar lookup and method
+ * registration goes through {@link ObjC#runtime()}, so with this backend
+ * JNA is only used for NativeLong/Pointer handle types of public API. Run
+ * with --enable-native-access=ALL-UNNAMED to avoid JDK warnings.
+ *
+ * @author dyorgio
+ */
+@IgnoreJRERequirement
+public final class FoundationFFM implements ObjCRuntime {
+
+    private static final Logger LOGGER = Logger.getLogger(FoundationFFM.class.getName());
+    private static final String FOUNDATION_PATH = "/System/Library/Frameworks/Foundation.framework/Foundation";
+
+    private static final Linker LINKER = Linker.nativeLinker();
+    private static final SymbolLookup FOUNDATION = SymbolLookup.libraryLookup(FOUNDATION_PATH, Arena.global());
+
+    private static final MethodHandle objc_getClass = downcall("objc_getClass", FunctionDescriptor.of(JAVA_LONG, ADDRESS));
+    private static final MethodHandle sel_registerName = downcall("sel_registerName", FunctionDescriptor.of(JAVA_LONG, ADDRESS));
+    private static final MethodHandle objc_allocateClassPair = downcall("objc_allocateClassPair", FunctionDescriptor.of(JAVA_LONG, JAVA_LONG, ADDRESS, JAVA_LONG));
+    private static final MethodHandle objc_registerClassPair = downcall("objc_registerClassPair", FunctionDescriptor.ofVoid(JAVA_LONG));
+    private static final MethodHandle class_createInstance = downcall("class_createInstance", FunctionDescriptor.of(JAVA_LONG, JAVA_LONG, JAVA_LONG));
+    private static final MethodHandle class_addMethod = downcall("class_addMethod", FunctionDescriptor.of(JAVA_BOOLEAN, JAVA_LONG, JAVA_LONG, ADDRESS, ADDRESS));
+    private static final MethodHandle class_getInstanceVariable = downcall("class_getInstanceVariable", FunctionDescriptor.of(JAVA_LONG, JAVA_LONG, ADDRESS));
+    private static final MethodHandle object_getIvar = downcall("object_getIvar", FunctionDescriptor.of(JAVA_LONG, JAVA_LONG, JAVA_LONG));
+
+    // objc_msgSend must be called with the exact prototype of each method
+    private static final MethodHandle msgSend = downcall("objc_msgSend", FunctionDescriptor.of(JAVA_LONG, JAVA_LONG, JAVA_LONG));
+    private static final MethodHandle msgSendLong = downcall("objc_msgSend", FunctionDescriptor.of(JAVA_LONG, JAVA_LONG, JAVA_LONG, JAVA_LONG));
+    private static final MethodHandle msgSendBoolean = downcall("objc_msgSend", FunctionDescriptor.of(JAVA_LONG, JAVA_LONG, JAVA_LONG, JAVA_BOOLEAN));
+    private static final MethodHandle msgSendDouble = downcall("objc_msgSend", FunctionDescriptor.of(JAVA_LONG, JAVA_LONG, JAVA_LONG, JAVA_DOUBLE));
+    private static final MethodHandle msgSendLongLong = downcall("objc_msgSend", FunctionDescriptor.of(JAVA_LONG, JAVA_LONG, JAVA_LONG, JAVA_LONG, JAVA_LONG));
+    private static final MethodHandle msgSendLongLongBoolean = downcall("objc_msgSend", FunctionDescriptor.of(JAVA_LONG, JAVA_LONG, JAVA_LONG, JAVA_LONG, JAVA_LONG, JAVA_BOOLEAN));
+    private static final MethodHandle msgSendBytes = downcall("objc_msgSend", FunctionDescriptor.of(JAVA_LONG, JAVA_LONG, JAVA_LONG, ADDRESS, JAVA_LONG, JAVA_LONG));
+
+    // (self, _cmd, arg) for "v@:" and "v@:@"
+    private static final FunctionDescriptor METHOD_DESCRIPTOR = FunctionDescriptor.ofVoid(JAVA_LONG, JAVA_LONG, JAVA_LONG);
+    private static final MethodHandle invokeMethod = findInvokeMethod();
+
+    public static final FoundationFFM INSTANCE = new FoundationFFM();
+
+    private FoundationFFM() {
+    }
+
+    private static MethodHandle downcall(String name, FunctionDescriptor descriptor) {
+        MemorySegment symbol = FOUNDATION.find(name)
+                .orElseThrow(() -> new UnsatisfiedLinkError("Symbol not found: " + name));
+        return LINKER.downcallHandle(symbol, descriptor);
+    }
+
+    private static MethodHandle findInvokeMethod() {
+        try {
+            return MethodHandles.lookup().findStatic(FoundationFFM.class, "invokeMethod",
+                    MethodType.methodType(void.class, ObjCMethod.class, long.class, long.class, long.class));
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Upcall target, exceptions cannot cross into native code (JVM would
+     * crash).
+     */
+    private static void invokeMethod(ObjCMethod method, long self, long selector, long arg) {
+        try {
+            method.invoke(self, selector, arg);
+        } catch (Throwable e) {
+            LOGGER.log(Level.SEVERE, "Uncaught exception on Objective-C method", e);
+        }
+    }
+
+    private static MemorySegment cString(Arena arena, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        MemorySegment segment = arena.allocate(bytes.length + 1);
+        MemorySegment.copy(bytes, 0, segment, JAVA_BYTE, 0, bytes.length);
+        segment.set(JAVA_BYTE, bytes.length, (byte) 0);
+        return segment;
+    }
+
+    private static RuntimeException rethrow(Throwable e) {
+        if (e instanceof RuntimeException runtimeException) {
+            throw runtimeException;
+        }
+        if (e instanceof Error error) {
+            throw error;
+        }
+        throw new IllegalStateException(e);
+    }
+
+    @Override
+    public long getClass(String className) {
+        try (Arena arena = Arena.ofConfined()) {
+            return (long) objc_getClass.invokeExact(cString(arena, className));
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    @Override
+    public long registerSelector(String selectorName) {
+        try (Arena arena = Arena.ofConfined()) {
+            return (long) sel_registerName.invokeExact(cString(arena, selectorName));
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    @Override
+    public long allocateClassPair(long superClass, String name) {
+        try (Arena arena = Arena.ofConfined()) {
+            return (long) objc_allocateClassPair.invokeExact(superClass, cString(arena, name), 0L);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    @Override
+    public void registerClassPair(long clazz) {
+        try {
+            objc_registerClassPair.invokeExact(clazz);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    @Override
+    public long createInstance(long clazz) {
+        try {
+            return (long) class_createInstance.invokeExact(clazz, 0L);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    @Override
+    public boolean addMethod(long clazz, long selector, ObjCMethod method, String types) {
+        // classes are never disposed, stub and types live forever
+        MemorySegment imp = LINKER.upcallStub(MethodHandles.insertArguments(invokeMethod, 0, method), METHOD_DESCRIPTOR, Arena.global());
+        try {
+            return (boolean) class_addMethod.invokeExact(clazz, selector, imp, cString(Arena.global(), types));
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    @Override
+    public long getInstanceVariable(long clazz, String name) {
+        try (Arena arena = Arena.ofConfined()) {
+            return (long) class_getInstanceVariable.invokeExact(clazz, cString(arena, name));
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    @Override
+    public long getIvar(long object, long ivar) {
+        try {
+            return (long) object_getIvar.invokeExact(object, ivar);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    @Override
+    public long msgSend(long receiver, long selector) {
+        try {
+            return (long) msgSend.invokeExact(receiver, selector);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    @Override
+    public long msgSend(long receiver, long selector, long arg) {
+        try {
+            return (long) msgSendLong.invokeExact(receiver, selector, arg);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    @Override
+    public long msgSend(long receiver, long selector, boolean arg) {
+        try {
+            return (long) msgSendBoolean.invokeExact(receiver, selector, arg);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    @Override
+    public long msgSend(long receiver, long selector, double arg) {
+        try {
+            return (long) msgSendDouble.invokeExact(receiver, selector, arg);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    @Override
+    public long msgSend(long receiver, long selector, long arg, long arg2) {
+        try {
+            return (long) msgSendLongLong.invokeExact(receiver, selector, arg, arg2);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    @Override
+    public long msgSend(long receiver, long selector, long arg, long arg2, boolean arg3) {
+        try {
+            return (long) msgSendLongLongBoolean.invokeExact(receiver, selector, arg, arg2, arg3);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    @Override
+    public long msgSend(long receiver, long selector, byte[] bytes, long arg, long arg2) {
+        try (Arena arena = Arena.ofConfined()) {
+            MemorySegment buffer = arena.allocate(bytes.length);
+            MemorySegment.copy(bytes, 0, buffer, JAVA_BYTE, 0, bytes.length);
+            long result = (long) msgSendBytes.invokeExact(receiver, selector, buffer, arg, arg2);
+            MemorySegment.copy(buffer, JAVA_BYTE, 0, bytes, 0, bytes.length);
+            return result;
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2020 dyorgio.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package dyorgio.runtime.macos.trayicon.fixer;
+
+import java.awt.MenuComponent;
+import java.awt.TrayIcon;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import org.codehaus.mojo.animal_sniffer.IgnoreJRERequirement;
+
+/**
+ * Java 9+ version of peer access, getters are static final MethodHandles
+ * (inlined by JIT) instead of reflective Field reads.
+ *
+ * @author dyorgio
+ */
+@IgnoreJRERequirement
+final class PeerAccess {
+
+    private static Exception initError;
+    private static final MethodHandle ptrGetter = getter("sun.lwawt.macosx.CFRetainedResource", "ptr", long.class);
+    private static final MethodHandle trayIconPeerGetter = getter("java.awt.TrayIcon", "peer", Object.class);
+    private static final MethodHandle menuComponentPeerGetter = getter("java.awt.MenuComponent", "peer", Object.class);
+
+    private PeerAccess() {
+    }
+
+    private static MethodHandle getter(String className, String fieldName, Class<?> type) {
+        try {
+            Field field = Class.forName(className).getDeclaredField(fieldName);
+            field.setAccessible(true);
+            return MethodHandles.lookup().unreflectGetter(field).asType(MethodType.methodType(type, Object.class));
+        } catch (Exception e) {
+            if (initError == null) {
+                initError = e;
+            }
+            return null;
+        }
+    }
+
+    private static void check(MethodHandle getter) throws Exception {
+        if (getter == null) {
+            throw initError;
+        }
+    }
+
+    private static Exception rethrow(Throwable e) throws Exception {
+        if (e instanceof Error) {
+            throw (Error) e;
+        }
+        throw (Exception) e;
+    }
+
+    static long getPtr(Object resource) throws Exception {
+        check(ptrGetter);
+        try {
+            return (long) ptrGetter.invokeExact(resource);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    static Object getPeer(TrayIcon icon) throws Exception {
+        check(trayIconPeerGetter);
+        try {
+            return (Object) trayIconPeerGetter.invokeExact((Object) icon);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    static Object getPeer(MenuComponent menu) throws Exception {
+        check(menuComponentPeerGetter);
+        try {
+            return (Object) menuComponentPeerGetter.invokeExact((Object) menu);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2020 dyorgio.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package examples;
+
+import dyorgio.runtime.macos.trayicon.fixer.image.IconBundle;
+import dyorgio.runtime.macos.trayicon.fixer.image.IconBundleWriter;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import javax.imageio.ImageIO;
+
+/**
+ * Compares decoding test PNGs with ImageIO against a memory mapped icon bundle,
+ * including the conversion to a native image (CImage draws every image into a
+ * TYPE_INT_ARGB_PRE buffer).
+ *
+ * @author dyorgio
+ */
+public class IconBundleBenchmark {
+
+    private static final String[][] FRAMES = {
+        {"/mactray22@2x.png", "/mactray-white22@2x.png"},
+        {"/mactray-pause22@2x.png", "/mactray-pause-white22@2x.png"}
+    };
+    private static final int ROUNDS = 2000;
+
+    public static void main(String[] args) throws IOException {
+        ImageIO.setUseCache(false);
+
+        File file = File.createTempFile("mactray", ".bundle");
+        file.deleteOnExit();
+        IconBundleWriter writer = new IconBundleWriter();
+        for (int i = 0; i < FRAMES.length; i++) {
+            writer.add(i, false, 2, ImageIO.read(IconBundleBenchmark.class.getResource(FRAMES[i][0])));
+            writer.add(i, true, 2, ImageIO.read(IconBundleBenchmark.class.getResource(FRAMES[i][1])));
+        }
+        writer.write(file);
+        System.out.println("IconBundle image type: " + IconBundle.open(file).getBlackImage(0).getType()//
+                + " (TYPE_INT_ARGB_PRE = " + BufferedImage.TYPE_INT_ARGB_PRE + ")");
+
+        // warm up
+        for (int i = 0; i < ROUNDS; i++) {
+            readImageIO();
+            readBundle(file);
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++) {
+            readImageIO();
+        }
+        long imageIONanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++) {
+            readBundle(file);
+        }
+        long bundleNanos = System.nanoTime() - start;
+
+        System.out.printf("ImageIO.read: %.1f us/set%n", imageIONanos / 1000d / ROUNDS);
+        System.out.printf("IconBundle:   %.1f us/set (%d bytes on disk)%n", bundleNanos / 1000d / ROUNDS, file.length());
+    }
+
+    private static int readImageIO() throws IOException {
+        int sum = 0;
+        for (String[] frame : FRAMES) {
+            for (String resource : frame) {
+                sum += toNative(ImageIO.read(IconBundleBenchmark.class.getResource(resource)));
+            }
+        }
+        return sum;
+    }
+
+    private static int readBundle(File file) throws IOException {
+        IconBundle bundle = IconBundle.open(file);
+        int sum = 0;
+        for (int i = 0; i < bundle.getFrameCount(); i++) {
+            sum += toNative(bundle.getBlackImage(i));
+            sum += toNative(bundle.getWhiteImage(i));
+        }
+        return sum;
+    }
+
+    // same conversion as CImage.Creator.createFromImage
+    private static int toNative(BufferedImage image) {
+        BufferedImage converted = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_ARGB_PRE);
+        Graphics2D g = converted.createGraphics();
+        try {
+            g.drawImage(image, 0, 0, null);
+        } finally {
+            g.dispose();
+        }
+        return converted.getRGB(0, 0);
+    }
+}
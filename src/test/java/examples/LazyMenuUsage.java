@@ -0,0 +1,82 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2020 dyorgio.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package examples;
+
+import dyorgio.runtime.macos.trayicon.fixer.MacOSTrayIconFixer;
+import dyorgio.runtime.macos.trayicon.fixer.jna.appkit.AppKit;
+import dyorgio.runtime.macos.trayicon.fixer.menu.LazyMenu;
+import dyorgio.runtime.macos.trayicon.fixer.menu.MenuBuilder;
+import dyorgio.runtime.macos.trayicon.fixer.menu.MenuPopulator;
+import java.awt.AWTException;
+import java.awt.Image;
+import java.awt.SystemTray;
+import java.awt.TrayIcon;
+import java.io.IOException;
+import javax.imageio.ImageIO;
+
+/**
+ *
+ * @author dyorgio
+ */
+public class LazyMenuUsage {
+
+    /**
+     * --add-opens java.desktop/sun.lwawt.macosx=ALL-UNNAMED
+     *
+     * @param args
+     * @throws IOException
+     * @throws AWTException
+     */
+    public static void main(String[] args) throws IOException, AWTException {
+
+        Image blackImage = ImageIO.read(LazyMenuUsage.class.getResource("/mactray22@2x.png"));
+        Image whiteImage = ImageIO.read(LazyMenuUsage.class.getResource("/mactray-white22@2x.png"));
+
+        TrayIcon icon = new TrayIcon(MacOSTrayIconFixer.getInitialIcon(blackImage, whiteImage), "Teste");
+        SystemTray.getSystemTray().add(icon);
+
+        MacOSTrayIconFixer.fix(icon, blackImage, whiteImage, false, AppKit.NSSquareStatusItemLength);
+
+        // only opened submenus are created
+        MacOSTrayIconFixer.setMenu(icon, new LazyMenu(new MenuPopulator() {
+            @Override
+            public void populate(MenuBuilder menu) {
+                for (int i = 0; i < 100; i++) {
+                    final int group = i;
+                    menu.addSubmenu("Group " + group, new MenuPopulator() {
+                        @Override
+                        public void populate(MenuBuilder submenu) {
+                            for (int j = 0; j < 100; j++) {
+                                final String title = "Item " + group + "." + j;
+                                submenu.addItem(title, () -> System.out.println(title));
+                            }
+                        }
+                    });
+                }
+                menu.addSeparator();
+                menu.addItem("Quit", () -> System.exit(0));
+            }
+        }));
+    }
+}
@@ -0,0 +1,317 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2020 dyorgio.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package examples;
+
+import dyorgio.runtime.macos.trayicon.fixer.menu.MenuDiff;
+import dyorgio.runtime.macos.trayicon.fixer.menu.MenuItemModel;
+import dyorgio.runtime.macos.trayicon.fixer.menu.MenuMutator;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.IntFunction;
+
+/**
+ * Measures MenuDiff cost and mutation counts against an in-memory fake menu,
+ * runs on any OS.<br>
+ * After every apply the fake menu is checked against the model (keys,
+ * titles, enabled state and structure) and items kept by the diff must be
+ * the same fake items as before (identity), failing on the first mismatch.
+ *
+ * @author dyorgio
+ */
+public class MenuDiffBenchmark {
+
+    private static final int ROUNDS = 2000;
+
+    public static void main(String[] args) {
+        run("rotation", MenuDiffBenchmark::rotation);
+        run("moves", MenuDiffBenchmark::moves);
+        run("enable toggles", MenuDiffBenchmark::enableToggles);
+        run("kind changes", MenuDiffBenchmark::kindChanges);
+        run("nested edits", MenuDiffBenchmark::nestedEdits);
+    }
+
+    private static void run(String name, IntFunction<List<MenuItemModel>> scenario) {
+        FakeMenu menu = new FakeMenu();
+        List<MenuItemModel> items = scenario.apply(0);
+        MenuDiff diff = MenuDiff.apply(Collections.<MenuItemModel>emptyList(), items, menu, FakeMutator.INSTANCE);
+        verify(menu, items, "");
+        System.out.println(name + ", initial build: " + diff);
+
+        long nanos = 0;
+        long mutations = 0;
+        for (int i = 1; i <= ROUNDS; i++) {
+            List<MenuItemModel> next = scenario.apply(i);
+            Map<String, FakeItem> before = new HashMap<String, FakeItem>();
+            snapshot(menu, "", before);
+            diff = MenuDiff.apply(items, next, menu, FakeMutator.INSTANCE);
+            nanos += diff.getNanos();
+            mutations += diff.getMutationCount();
+            verify(menu, next, "");
+            verifyIdentity(menu, items, next, "", before);
+            items = next;
+        }
+        System.out.println(name + ", last update: " + diff);
+        System.out.printf("%s, %d updates: %.1f us/update, %.1f mutations/update, %d native items%n", //
+                name, ROUNDS, nanos / 1000d / ROUNDS, (double) mutations / ROUNDS, menu.count());
+    }
+
+    /**
+     * Status line changes every version, recent list rotates every 10
+     * versions, everything else is stable.
+     */
+    private static List<MenuItemModel> rotation(int version) {
+        List<MenuItemModel> items = new ArrayList<MenuItemModel>();
+        items.add(MenuItemModel.item("status", "Queue: " + version, null).withEnabled(false));
+        items.add(MenuItemModel.separator("sep1"));
+        List<MenuItemModel> recent = new ArrayList<MenuItemModel>();
+        int first = version / 10;
+        for (int i = first; i < first + 200; i++) {
+            recent.add(MenuItemModel.item("recent" + i, "Recent item " + i, null));
+        }
+        items.add(MenuItemModel.submenu("recent", "Recent", recent));
+        for (int i = 0; i < 20; i++) {
+            List<MenuItemModel> children = new ArrayList<MenuItemModel>();
+            for (int j = 0; j < 20; j++) {
+                children.add(MenuItemModel.item("item" + j, "Item " + i + "." + j, null));
+            }
+            items.add(MenuItemModel.submenu("group" + i, "Group " + i, children));
+        }
+        items.add(MenuItemModel.separator("sep2"));
+        items.add(MenuItemModel.item("quit", "Quit", null));
+        return items;
+    }
+
+    /**
+     * Same 100 items, a few random swaps every version.
+     */
+    private static List<MenuItemModel> moves(int version) {
+        List<MenuItemModel> items = new ArrayList<MenuItemModel>();
+        for (int i = 0; i < 100; i++) {
+            items.add(MenuItemModel.item("item" + i, "Item " + i, null));
+        }
+        Random random = new Random(version);
+        for (int i = version % 5; i > 0; i--) {
+            Collections.swap(items, random.nextInt(items.size()), random.nextInt(items.size()));
+        }
+        return items;
+    }
+
+    /**
+     * Same 100 items, enabled state follows version bits.
+     */
+    private static List<MenuItemModel> enableToggles(int version) {
+        List<MenuItemModel> items = new ArrayList<MenuItemModel>();
+        for (int i = 0; i < 100; i++) {
+            items.add(MenuItemModel.item("item" + i, "Item " + i, null).withEnabled(((version >> (i % 8)) & 1) == 0));
+        }
+        return items;
+    }
+
+    /**
+     * Same keys cycling between item, submenu and separator.
+     */
+    private static List<MenuItemModel> kindChanges(int version) {
+        List<MenuItemModel> items = new ArrayList<MenuItemModel>();
+        for (int i = 0; i < 30; i++) {
+            String key = "entry" + i;
+            switch ((version / 3 + i) % 3) {
+                case 0:
+                    items.add(MenuItemModel.item(key, "Item " + i, null));
+                    break;
+                case 1:
+                    items.add(MenuItemModel.submenu(key, "Submenu " + i, //
+                            MenuItemModel.item("child0", "Child " + i + ".0", null), //
+                            MenuItemModel.item("child1", "Child " + i + ".1", null)));
+                    break;
+                default:
+                    items.add(MenuItemModel.separator(key));
+            }
+        }
+        return items;
+    }
+
+    /**
+     * Three levels of submenus, deepest level is retitled, grown, shrunk and
+     * toggled depending on version.
+     */
+    private static List<MenuItemModel> nestedEdits(int version) {
+        List<MenuItemModel> items = new ArrayList<MenuItemModel>();
+        for (int i = 0; i < 5; i++) {
+            List<MenuItemModel> level2 = new ArrayList<MenuItemModel>();
+            for (int j = 0; j < 5; j++) {
+                List<MenuItemModel> level3 = new ArrayList<MenuItemModel>();
+                int count = 5 + (version + i + j) % 4;
+                for (int k = 0; k < count; k++) {
+                    String title = k == version % count ? "Leaf " + k + " @" + version : "Leaf " + k;
+                    level3.add(MenuItemModel.item("leaf" + k, title, null).withEnabled((version + k) % 3 != 0));
+                }
+                level2.add(MenuItemModel.submenu("sub" + j, "Submenu " + i + "." + j, level3));
+            }
+            items.add(MenuItemModel.submenu("group" + i, "Group " + i, level2));
+        }
+        return items;
+    }
+
+    private static void verify(FakeMenu menu, List<MenuItemModel> items, String path) {
+        if (menu.items.size() != items.size()) {
+            throw new IllegalStateException("Item count mismatch at '" + path + "': expected " + items.size()//
+                    + ", found " + menu.items.size());
+        }
+        for (int i = 0; i < items.size(); i++) {
+            MenuItemModel expected = items.get(i);
+            FakeItem actual = menu.items.get(i);
+            String itemPath = path + "/" + expected.getKey();
+            if (!actual.key.equals(expected.getKey())
+                    || actual.separator != expected.isSeparator()
+                    || (actual.submenu != null) != expected.isSubmenu()
+                    || actual.enabled != expected.isEnabled()
+                    || !equals(actual.title, expected.getTitle())) {
+                throw new IllegalStateException("Item mismatch at '" + itemPath + "': expected " + expected//
+                        + ", found key=" + actual.key + ", title=" + actual.title + ", enabled=" + actual.enabled//
+                        + ", separator=" + actual.separator + ", submenu=" + (actual.submenu != null));
+            }
+            if (actual.submenu != null) {
+                verify(actual.submenu, expected.getChildren(), itemPath);
+            }
+        }
+    }
+
+    private static void snapshot(FakeMenu menu, String path, Map<String, FakeItem> items) {
+        for (FakeItem item : menu.items) {
+            String itemPath = path + "/" + item.key;
+            items.put(itemPath, item);
+            if (item.submenu != null) {
+                snapshot(item.submenu, itemPath, items);
+            }
+        }
+    }
+
+    /**
+     * Items with same key and kind on a kept parent must be kept (moved,
+     * retitled or toggled, never recreated).
+     */
+    private static void verifyIdentity(FakeMenu menu, List<MenuItemModel> oldItems, List<MenuItemModel> newItems, //
+            String path, Map<String, FakeItem> before) {
+        Map<String, MenuItemModel> old = new HashMap<String, MenuItemModel>();
+        for (MenuItemModel item : oldItems) {
+            old.put(item.getKey(), item);
+        }
+        for (int i = 0; i < newItems.size(); i++) {
+            MenuItemModel item = newItems.get(i);
+            MenuItemModel previous = old.get(item.getKey());
+            if (previous == null || previous.isSeparator() != item.isSeparator() || previous.isSubmenu() != item.isSubmenu()) {
+                continue;
+            }
+            String itemPath = path + "/" + item.getKey();
+            FakeItem actual = menu.items.get(i);
+            if (before.get(itemPath) != actual) {
+                throw new IllegalStateException("Item recreated at '" + itemPath + "'");
+            }
+            if (item.isSubmenu()) {
+                verifyIdentity(actual.submenu, previous.getChildren(), item.getChildren(), itemPath, before);
+            }
+        }
+    }
+
+    private static boolean equals(String a, String b) {
+        return a == null ? b == null : a.equals(b);
+    }
+
+    private static final class FakeMenu {
+
+        private final List<FakeItem> items = new ArrayList<FakeItem>();
+
+        private int count() {
+            int count = items.size();
+            for (FakeItem item : items) {
+                if (item.submenu != null) {
+                    count += item.submenu.count();
+                }
+            }
+            return count;
+        }
+    }
+
+    private static final class FakeItem {
+
+        private final String key;
+        private String title;
+        private boolean enabled;
+        private final boolean separator;
+        private final FakeMenu submenu;
+
+        private FakeItem(String key, String title, boolean enabled, boolean separator, FakeMenu submenu) {
+            this.key = key;
+            this.title = title;
+            this.enabled = enabled;
+            this.separator = separator;
+            this.submenu = submenu;
+        }
+    }
+
+    private static final class FakeMutator implements MenuMutator<FakeMenu> {
+
+        private static final FakeMutator INSTANCE = new FakeMutator();
+
+        @Override
+        public FakeMenu insertItem(FakeMenu menu, int index, MenuItemModel item) {
+            FakeMenu submenu = item.isSubmenu() ? new FakeMenu() : null;
+            menu.items.add(index, new FakeItem(item.getKey(), item.getTitle(), item.isEnabled(), item.isSeparator(), submenu));
+            return submenu;
+        }
+
+        @Override
+        public void removeItem(FakeMenu menu, int index) {
+            menu.items.remove(index);
+        }
+
+        @Override
+        public void moveItem(FakeMenu menu, int from, int to) {
+            menu.items.add(to, menu.items.remove(from));
+        }
+
+        @Override
+        public void setTitle(FakeMenu menu, int index, String title) {
+            menu.items.get(index).title = title;
+        }
+
+        @Override
+        public void setEnabled(FakeMenu menu, int index, boolean enabled) {
+            menu.items.get(index).enabled = enabled;
+        }
+
+        @Override
+        public void setAction(FakeMenu menu, int index, Runnable action) {
+        }
+
+        @Override
+        public FakeMenu getSubmenu(FakeMenu menu, int index) {
+            return menu.items.get(index).submenu;
+        }
+    }
+}
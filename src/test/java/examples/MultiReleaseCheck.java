@@ -0,0 +1,174 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2020 dyorgio.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package examples;
+
+import java.awt.MenuComponent;
+import java.awt.MenuItem;
+import java.awt.TrayIcon;
+import java.lang.invoke.MethodHandle;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.net.URL;
+
+/**
+ * Asserts which versions of the multi-release classes are active when the
+ * packaged JAR is loaded: base classes on Java 8, META-INF/versions/9 on Java
+ * 9+. Then runs the active PeerAccess on AWT objects allocated without
+ * constructors (no display needed), so it runs on any OS.<br>
+ * Runs on verify with the build JDK, and with {@code -Djava8.home=...} also on
+ * Java 8:<br>
+ * {@code java -cp target/macos-tray-icon-fixer-<version>.jar:target/test-classes:jna.jar examples.MultiReleaseCheck}
+ *
+ * @author dyorgio
+ */
+public class MultiReleaseCheck {
+
+    private static final String PACKAGE = "dyorgio.runtime.macos.trayicon.fixer.";
+
+    public static void main(String[] args) throws Exception {
+        String specVersion = System.getProperty("java.specification.version");
+        boolean java9 = !specVersion.startsWith("1.");
+
+        Class<?> peerAccess = load(PACKAGE + "PeerAccess");
+        Class<?> releaser = load(PACKAGE + "jna.foundation.NativeReleaser");
+
+        check(peerAccess, hasStaticField(peerAccess, MethodHandle.class) == java9,
+                java9 ? "MethodHandle getters" : "reflective Fields");
+        check(releaser, hasField(releaser, "java.lang.ref.Cleaner$Cleanable") == java9,
+                java9 ? "Cleaner" : "finalize guardian");
+        check(releaser, declaresFinalize(releaser) != java9,
+                java9 ? "no finalize" : "finalize");
+
+        checkPeerAccess(peerAccess);
+
+        System.out.println("Java " + specVersion + ": " + (java9 ? "META-INF/versions/9" : "base") + " classes active");
+    }
+
+    /**
+     * Same results are expected from both versions, peers are sentinels
+     * written with Unsafe (peer fields have non exported interface types).
+     */
+    private static void checkPeerAccess(Class<?> peerAccess) throws Exception {
+        Object unsafe = unsafe();
+        Object peer = new Object();
+
+        MenuItem item = (MenuItem) allocate(unsafe, MenuItem.class);
+        check(peerAccess, invoke(peerAccess, "getPeer", MenuComponent.class, item) == null, "null MenuComponent peer");
+        putObject(unsafe, MenuComponent.class.getDeclaredField("peer"), item, peer);
+        check(peerAccess, invoke(peerAccess, "getPeer", MenuComponent.class, item) == peer, "MenuComponent peer");
+
+        TrayIcon icon = (TrayIcon) allocate(unsafe, TrayIcon.class);
+        check(peerAccess, invoke(peerAccess, "getPeer", TrayIcon.class, icon) == null, "null TrayIcon peer");
+        putObject(unsafe, TrayIcon.class.getDeclaredField("peer"), icon, peer);
+        check(peerAccess, invoke(peerAccess, "getPeer", TrayIcon.class, icon) == peer, "TrayIcon peer");
+
+        Class<?> resourceClass;
+        try {
+            resourceClass = Class.forName("sun.lwawt.macosx.CFRetainedResource");
+        } catch (ClassNotFoundException e) {
+            // not macOS, getPtr fails with the lookup error
+            try {
+                invoke(peerAccess, "getPtr", Object.class, peer);
+                check(peerAccess, false, "getPtr failure without CFRetainedResource");
+            } catch (InvocationTargetException expected) {
+                check(peerAccess, expected.getCause() instanceof ClassNotFoundException, "ClassNotFoundException, found " + expected.getCause());
+            }
+            return;
+        }
+        Object resource = allocate(unsafe, resourceClass);
+        Field ptr = resourceClass.getDeclaredField("ptr");
+        unsafe.getClass().getMethod("putLong", Object.class, long.class, long.class)
+                .invoke(unsafe, resource, fieldOffset(unsafe, ptr), 0x7f0000001000L);
+        check(peerAccess, ((Long) invoke(peerAccess, "getPtr", Object.class, resource)) == 0x7f0000001000L, "CFRetainedResource ptr");
+    }
+
+    private static Object invoke(Class<?> type, String name, Class<?> parameter, Object arg) throws Exception {
+        Method method = type.getDeclaredMethod(name, parameter);
+        method.setAccessible(true);
+        return method.invoke(null, arg);
+    }
+
+    private static Object unsafe() throws Exception {
+        Field field = Class.forName("sun.misc.Unsafe").getDeclaredField("theUnsafe");
+        field.setAccessible(true);
+        return field.get(null);
+    }
+
+    private static Object allocate(Object unsafe, Class<?> type) throws Exception {
+        return unsafe.getClass().getMethod("allocateInstance", Class.class).invoke(unsafe, type);
+    }
+
+    private static long fieldOffset(Object unsafe, Field field) throws Exception {
+        return (Long) unsafe.getClass().getMethod("objectFieldOffset", Field.class).invoke(unsafe, field);
+    }
+
+    private static void putObject(Object unsafe, Field field, Object target, Object value) throws Exception {
+        unsafe.getClass().getMethod("putObjectVolatile", Object.class, long.class, Object.class)
+                .invoke(unsafe, target, fieldOffset(unsafe, field), value);
+    }
+
+    private static Class<?> load(String name) throws ClassNotFoundException {
+        Class<?> type = Class.forName(name, false, MultiReleaseCheck.class.getClassLoader());
+        URL location = type.getProtectionDomain().getCodeSource().getLocation();
+        if (!location.getPath().endsWith(".jar")) {
+            throw new AssertionError(name + " must be loaded from packaged JAR, found: " + location);
+        }
+        return type;
+    }
+
+    private static void check(Class<?> type, boolean condition, String expected) {
+        if (!condition) {
+            throw new AssertionError(type.getName() + " expected " + expected);
+        }
+    }
+
+    private static boolean hasStaticField(Class<?> type, Class<?> fieldType) {
+        for (Field field : type.getDeclaredFields()) {
+            if (Modifier.isStatic(field.getModifiers()) && field.getType() == fieldType) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean hasField(Class<?> type, String fieldType) {
+        for (Field field : type.getDeclaredFields()) {
+            if (field.getType().getName().equals(fieldType)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean declaresFinalize(Class<?> type) {
+        try {
+            type.getDeclaredMethod("finalize");
+            return true;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,200 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2020 dyorgio.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package examples;
+
+import com.sun.jna.NativeLong;
+import com.sun.jna.Pointer;
+import dyorgio.runtime.macos.trayicon.fixer.jna.foundation.FoundationUtil;
+import dyorgio.runtime.macos.trayicon.fixer.jna.foundation.NSDictionary;
+import dyorgio.runtime.macos.trayicon.fixer.jna.foundation.ObjC;
+import dyorgio.runtime.macos.trayicon.fixer.jna.foundation.ObjCInvokers;
+import dyorgio.runtime.macos.trayicon.fixer.jna.foundation.ObjCMethod;
+import dyorgio.runtime.macos.trayicon.fixer.jna.foundation.ObjCRuntime;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Allocation rate (JMH gc profiler) of library message send call sites:
+ * {@link ObjC#send(long, long, long)} (status item updates) versus NativeLong
+ * handle call sites, a generated {@link ObjCInvokers} invoker
+ * ({@link NSDictionary}) and {@link FoundationUtil} invoke. All go through
+ * {@link ObjC#runtime()}, here a fake runtime (installed with
+ * {@link ObjC#setRuntime(ObjCRuntime)}) so it runs on any OS and only
+ * library overhead is measured.<br>
+ * Check gc.alloc.rate.norm: long handles should report ~0 B/op.
+ *
+ * @author dyorgio
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ObjCHandlesBenchmark {
+
+    private static final int OBJECTS = 64;
+
+    private final long[] ids = new long[OBJECTS];
+    private final NativeLong[] nativeIds = new NativeLong[OBJECTS];
+    private NSDictionary.Selectors dictionary;
+    private long selector;
+    private Pointer selectorPointer;
+    private int next;
+
+    @Setup
+    public void setup() {
+        ObjC.setRuntime(FakeRuntime.INSTANCE);
+        selector = ObjC.selector("objectForKey:");
+        selectorPointer = new Pointer(selector);
+        dictionary = ObjCInvokers.get(NSDictionary.Selectors.class);
+        for (int i = 0; i < OBJECTS; i++) {
+            // large ids, outside Long.valueOf cache like real addresses
+            ids[i] = 0x7f0000001000L + i * 16L;
+            nativeIds[i] = new NativeLong(ids[i]);
+        }
+    }
+
+    private int nextIndex() {
+        return next = (next + 1) & (OBJECTS - 1);
+    }
+
+    @Benchmark
+    public void longHandles(Blackhole blackhole) {
+        long id = ids[nextIndex()];
+        blackhole.consume(ObjC.send(id, selector, id));
+    }
+
+    @Benchmark
+    public void invoker(Blackhole blackhole) {
+        NativeLong id = nativeIds[nextIndex()];
+        blackhole.consume(dictionary.objectForKey(id, id));
+    }
+
+    @Benchmark
+    public void foundationUtil(Blackhole blackhole) {
+        NativeLong id = nativeIds[nextIndex()];
+        blackhole.consume(FoundationUtil.invoke(id, selectorPointer, id));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(ObjCHandlesBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+
+    private static final class FakeRuntime implements ObjCRuntime {
+
+        static final FakeRuntime INSTANCE = new FakeRuntime();
+
+        @Override
+        public long getClass(String className) {
+            return className.hashCode() | 1L;
+        }
+
+        @Override
+        public long registerSelector(String selectorName) {
+            return selectorName.hashCode() | 1L;
+        }
+
+        @Override
+        public long allocateClassPair(long superClass, String name) {
+            return name.hashCode() | 1L;
+        }
+
+        @Override
+        public void registerClassPair(long clazz) {
+        }
+
+        @Override
+        public long createInstance(long clazz) {
+            return clazz + 16;
+        }
+
+        @Override
+        public boolean addMethod(long clazz, long selector, ObjCMethod method, String types) {
+            return true;
+        }
+
+        @Override
+        public long getInstanceVariable(long clazz, String name) {
+            return clazz ^ name.hashCode();
+        }
+
+        @Override
+        public long getIvar(long object, long ivar) {
+            return object ^ ivar;
+        }
+
+        @Override
+        public long msgSend(long receiver, long selector) {
+            return receiver ^ selector;
+        }
+
+        @Override
+        public long msgSend(long receiver, long selector, long arg) {
+            return receiver ^ selector ^ arg;
+        }
+
+        @Override
+        public long msgSend(long receiver, long selector, boolean arg) {
+            return receiver ^ selector ^ (arg ? 1 : 0);
+        }
+
+        @Override
+        public long msgSend(long receiver, long selector, double arg) {
+            return receiver ^ selector ^ Double.doubleToRawLongBits(arg);
+        }
+
+        @Override
+        public long msgSend(long receiver, long selector, long arg, long arg2) {
+            return receiver ^ selector ^ arg ^ arg2;
+        }
+
+        @Override
+        public long msgSend(long receiver, long selector, long arg, long arg2, boolean arg3) {
+            return receiver ^ selector ^ arg ^ arg2 ^ (arg3 ? 1 : 0);
+        }
+
+        @Override
+        public long msgSend(long receiver, long selector, byte[] bytes, long arg, long arg2) {
+            return receiver ^ selector ^ bytes.length ^ arg ^ arg2;
+        }
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2020 dyorgio.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package examples;
+
+import com.sun.jna.NativeLong;
+import com.sun.jna.Pointer;
+import dyorgio.runtime.macos.trayicon.fixer.jna.foundation.Foundation;
+import dyorgio.runtime.macos.trayicon.fixer.jna.foundation.NSUserDefaults;
+import dyorgio.runtime.macos.trayicon.fixer.jna.foundation.ObjC;
+import dyorgio.runtime.macos.trayicon.fixer.jna.foundation.ObjCInvokers;
+
+/**
+ * Compares JNA Library proxy objc_msgSend against generated invokers and
+ * long handles (both over {@link ObjC#runtime()}), needs macOS.
+ *
+ * @author dyorgio
+ */
+public class ObjCInvokersBenchmark {
+
+    private static final int ROUNDS = 1000000;
+
+    public static void main(String[] args) {
+        NativeLong userDefaultsClass = Foundation.INSTANCE.objc_getClass("NSUserDefaults");
+        Pointer standardUserDefaultsSel = Foundation.INSTANCE.sel_registerName("standardUserDefaults");
+        long userDefaultsClassId = ObjC.getClass("NSUserDefaults");
+        long standardUserDefaultsSelId = ObjC.selector("standardUserDefaults");
+        NSUserDefaults.Selectors invoker = ObjCInvokers.get(NSUserDefaults.Selectors.class);
+        System.out.println("invoker: " + invoker.getClass().getName() + ", runtime: " + ObjC.runtime().getClass().getName());
+
+        for (int i = 0; i < ROUNDS; i++) {
+            Foundation.INSTANCE.objc_msgSend(userDefaultsClass, standardUserDefaultsSel);
+            invoker.standardUserDefaults();
+            ObjC.send(userDefaultsClassId, standardUserDefaultsSelId);
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++) {
+            Foundation.INSTANCE.objc_msgSend(userDefaultsClass, standardUserDefaultsSel);
+        }
+        long proxyNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++) {
+            invoker.standardUserDefaults();
+        }
+        long invokerNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++) {
+            ObjC.send(userDefaultsClassId, standardUserDefaultsSelId);
+        }
+        long longNanos = System.nanoTime() - start;
+
+        System.out.printf("Library proxy: %.1f ns/call%n", (double) proxyNanos / ROUNDS);
+        System.out.printf("invoker:       %.1f ns/call%n", (double) invokerNanos / ROUNDS);
+        System.out.printf("long handles:  %.1f ns/call%n", (double) longNanos / ROUNDS);
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2020 dyorgio.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package examples;
+
+import dyorgio.runtime.macos.trayicon.fixer.image.SpriteSheet;
+import java.awt.Image;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import javax.imageio.ImageIO;
+
+/**
+ * Compares decoding each frame file against decoding a single sprite sheet.
+ *
+ * @author dyorgio
+ */
+public class SpriteSheetBenchmark {
+
+    private static final String[] FILES = {
+        "/mactray22@2x.png", "/mactray-white22@2x.png",
+        "/mactray-pause22@2x.png", "/mactray-pause-white22@2x.png"
+    };
+    private static final int ROUNDS = 2000;
+
+    public static void main(String[] args) throws IOException {
+        ImageIO.setUseCache(false);
+        // warm up
+        for (int i = 0; i < ROUNDS; i++) {
+            readFiles();
+            readSheet();
+        }
+
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+
+        System.gc();
+        long heap = memory.getHeapMemoryUsage().getUsed();
+        long start = System.nanoTime();
+        Image[][] files = new Image[ROUNDS][];
+        for (int i = 0; i < ROUNDS; i++) {
+            files[i] = readFiles();
+        }
+        long filesNanos = System.nanoTime() - start;
+        System.gc();
+        long filesHeap = memory.getHeapMemoryUsage().getUsed() - heap;
+        files = null;
+
+        System.gc();
+        heap = memory.getHeapMemoryUsage().getUsed();
+        start = System.nanoTime();
+        SpriteSheet[] sheets = new SpriteSheet[ROUNDS];
+        for (int i = 0; i < ROUNDS; i++) {
+            sheets[i] = readSheet();
+        }
+        long sheetNanos = System.nanoTime() - start;
+        System.gc();
+        long sheetHeap = memory.getHeapMemoryUsage().getUsed() - heap;
+
+        System.out.printf("individual files: %.1f us/set, %d bytes/set%n", filesNanos / 1000d / ROUNDS, filesHeap / ROUNDS);
+        System.out.printf("sprite sheet:     %.1f us/set, %d bytes/set%n", sheetNanos / 1000d / ROUNDS, sheetHeap / ROUNDS);
+        System.out.println(sheets.length + " sheets, " + sheets[0].getFrameCount() + " frames each");
+    }
+
+    private static Image[] readFiles() throws IOException {
+        Image[] images = new Image[FILES.length];
+        for (int i = 0; i < FILES.length; i++) {
+            images[i] = ImageIO.read(SpriteSheetBenchmark.class.getResource(FILES[i]));
+        }
+        return images;
+    }
+
+    private static SpriteSheet readSheet() throws IOException {
+        SpriteSheet sheet = SpriteSheet.read(SpriteSheetBenchmark.class.getResource("/mactray-sprite22@2x.png"), 44, 44);
+        for (int i = 0; i < sheet.getFrameCount(); i++) {
+            sheet.getBlackImage(i);
+            sheet.getWhiteImage(i);
+        }
+        return sheet;
+    }
+}
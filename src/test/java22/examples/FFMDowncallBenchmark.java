@@ -0,0 +1,95 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2020 dyorgio.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package examples;
+
+import static java.lang.foreign.ValueLayout.JAVA_LONG;
+import com.sun.jna.Library;
+import com.sun.jna.Native;
+import com.sun.jna.Platform;
+import java.lang.foreign.FunctionDescriptor;
+import java.lang.foreign.Linker;
+import java.lang.invoke.MethodHandle;
+
+/**
+ * Per call overhead of JNA (Library proxy and direct mapping, as used by
+ * Foundation/FoundationLong) versus a Panama FFM downcall (as used by
+ * FoundationFFM), calling libc labs(long) that has the same primitive shape
+ * as objc_msgSend with long ids. Runs on Linux and macOS, JDK 22+.
+ *
+ * @author dyorgio
+ */
+public class FFMDowncallBenchmark {
+
+    private static final int CALLS = 20_000_000;
+    private static final int ROUNDS = 5;
+
+    private static final MethodHandle labs = Linker.nativeLinker().downcallHandle(
+            Linker.nativeLinker().defaultLookup().find("labs").orElseThrow(),
+            FunctionDescriptor.of(JAVA_LONG, JAVA_LONG));
+
+    public interface LibC extends Library {
+
+        LibC INSTANCE = Native.load(Platform.C_LIBRARY_NAME, LibC.class);
+
+        long labs(long value);
+    }
+
+    public static final class LibCDirect {
+
+        static {
+            Native.register(Platform.C_LIBRARY_NAME);
+        }
+
+        public static native long labs(long value);
+    }
+
+    public static void main(String[] args) throws Throwable {
+        for (int round = 1; round <= ROUNDS; round++) {
+            long start = System.nanoTime();
+            long sum = 0;
+            for (int i = 0; i < CALLS / 10; i++) {
+                sum += LibC.INSTANCE.labs(-i);
+            }
+            report(round, "JNA proxy", start, CALLS / 10, sum);
+
+            start = System.nanoTime();
+            sum = 0;
+            for (int i = 0; i < CALLS; i++) {
+                sum += LibCDirect.labs(-i);
+            }
+            report(round, "JNA direct", start, CALLS, sum);
+
+            start = System.nanoTime();
+            sum = 0;
+            for (int i = 0; i < CALLS; i++) {
+                sum += (long) labs.invokeExact((long) -i);
+            }
+            report(round, "FFM downcall", start, CALLS, sum);
+        }
+    }
+
+    private static void report(int round, String name, long start, int calls, long sum) {
+        System.out.printf("round %d %-12s: %6.1f ns/call (%d)%n", round, name, (System.nanoTime() - start) / (double) calls, sum);
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2020 dyorgio.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package examples;
+
+import dyorgio.runtime.macos.trayicon.fixer.jna.foundation.FoundationUtil;
+import dyorgio.runtime.macos.trayicon.fixer.jna.foundation.NSString;
+import dyorgio.runtime.macos.trayicon.fixer.jna.foundation.ObjC;
+import java.net.URL;
+
+/**
+ * Asserts that the Panama FFM backend (META-INF/versions/22) is packaged and,
+ * on macOS, chosen by {@link ObjC#runtime()} and working: class, selector and
+ * ivar lookups, {@link FoundationUtil} invoke and a NSString round trip
+ * (byte buffer sends both ways). On other OS only packaging is checked.<br>
+ * Runs on verify of ffm profile with the build JDK or
+ * {@code -Djava22.home=...}:<br>
+ * {@code java --enable-native-access=ALL-UNNAMED -cp target/macos-tray-icon-fixer-<version>.jar:target/test-classes:jna.jar examples.FFMRuntimeCheck}
+ *
+ * @author dyorgio
+ */
+public class FFMRuntimeCheck {
+
+    private static final String FFM_CLASS = "dyorgio/runtime/macos/trayicon/fixer/jna/foundation/FoundationFFM.class";
+
+    public static void main(String[] args) throws Exception {
+        URL location = FFMRuntimeCheck.class.getClassLoader().getResource(FFM_CLASS);
+        if (location == null || !location.toString().contains("!/META-INF/versions/22/")) {
+            throw new AssertionError("FoundationFFM must be loaded from META-INF/versions/22 of packaged JAR, found: " + location);
+        }
+        if (!System.getProperty("os.name").toLowerCase().startsWith("mac")) {
+            System.out.println("Java " + Runtime.version().feature() + ": FFM backend packaged, runtime checks need macOS");
+            return;
+        }
+
+        String runtime = ObjC.runtime().getClass().getSimpleName();
+        check("FoundationFFM".equals(runtime), "FoundationFFM runtime, found " + runtime);
+
+        long objectClass = ObjC.getClass("NSObject");
+        check(!ObjC.isNil(objectClass), "NSObject class");
+        check(!ObjC.isNil(ObjC.runtime().getInstanceVariable(objectClass, "isa")), "NSObject isa ivar");
+
+        String value = "fixer \u2713";
+        NSString string = new NSString(value);
+        try {
+            check(value.equals(string.toString()), "NSString round trip, found " + string);
+            long length = FoundationUtil.invoke(string.getId(), "length").longValue();
+            check(length == value.length(), "NSString length " + value.length() + ", found " + length);
+        } finally {
+            string.release();
+        }
+
+        System.out.println("Java " + Runtime.version().feature() + ": FFM backend active");
+    }
+
+    private static void check(boolean condition, String expected) {
+        if (!condition) {
+            throw new AssertionError("Expected " + expected);
+        }
+    }
+}